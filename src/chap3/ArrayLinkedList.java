@@ -0,0 +1,406 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: double-linked list with the MyLinkedList API stored as struct-of-arrays. A node is a slot
+ * index: its element is in data[slot] and its links are prev[slot]/next[slot]. Removed slots go on a
+ * free list and are reused by the next insert, so insert/remove churn does not allocate, and the links
+ * of nearby nodes sit next to each other in memory.
+ *
+ * Slot 0 is the beginMarker and slot 1 is the endMarker. A slot keeps its number and its element until its
+ * node is removed, so slotOf/nextSlot/addBefore/removeSlot can relink at a known slot in O(1), like
+ * MyLinkedList.addBefore, and swap and shift relink slots instead of moving elements between them.
+ */
+public class ArrayLinkedList<T> implements Iterable<T> {
+    private static final int BEGIN = 0;
+    private static final int END = 1;
+    private static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private int theSize;
+    private Object[] data;
+    private int[] prev;
+    private int[] next;
+    private int freeHead;  // first free slot, the free slots are chained through next[]
+    private int used;      // slots [0, used) have been handed out at least once
+
+    public ArrayLinkedList() {
+        clear();
+    }
+
+    public void clear() {
+        data = new Object[DEFAULT_CAPACITY + 2];
+        prev = new int[DEFAULT_CAPACITY + 2];
+        next = new int[DEFAULT_CAPACITY + 2];
+
+        prev[BEGIN] = NIL;
+        next[BEGIN] = END;
+        prev[END] = BEGIN;
+        next[END] = NIL;
+        freeHead = NIL;
+        used = 2;
+
+        theSize = 0;
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        addBefore(getNode(idx, 0, size()), x);
+    }
+
+    /**
+     * link a new slot holding x in front of slot p, in O(1)
+     * @param p slot of a node, or the endMarker slot returned by slotOf(size()) to append
+     * @param x element
+     * @return the new slot
+     */
+    public int addBefore(int p, T x) {
+        checkSlot(p, true);
+
+        int newNode = allocate();
+        data[newNode] = x;
+        prev[newNode] = prev[p];
+        next[newNode] = p;
+        next[prev[p]] = newNode;
+        prev[p] = newNode;
+        theSize++;
+
+        return newNode;
+    }
+
+    public T get(int idx) {
+        return elementAt(getNode(idx));
+    }
+
+    private int getNode(int idx) {
+        return getNode(idx, 0, size() - 1);
+    }
+
+    private int getNode(int idx, int lower, int upper) {
+        int p;
+
+        if (idx < lower || idx > upper)
+            throw new IndexOutOfBoundsException("getNode index: " + idx + "; size: " + size());
+
+        if (idx < size() / 2) {
+            p = next[BEGIN];
+            for (int i = 0; i < idx; i++) {
+                p = next[p];
+            }
+        } else {
+            p = END;
+            for (int i = size(); i > idx; i--) {
+                p = prev[p];
+            }
+        }
+
+        return p;
+    }
+
+    public T set(int idx, T newVal) {
+        int p = getNode(idx);
+        T oldVal = elementAt(p);
+
+        data[p] = newVal;
+
+        return oldVal;
+    }
+
+    public T remove(int idx) {
+        return unlink(getNode(idx));
+    }
+
+    /**
+     * @param idx position, 0 <= idx <= size()
+     * @return slot of the node at idx, the endMarker slot if idx == size()
+     */
+    public int slotOf(int idx) {
+        return getNode(idx, 0, size());
+    }
+
+    /**
+     * @param p slot of a node
+     * @return slot of the following node, the endMarker slot after the last one
+     */
+    public int nextSlot(int p) {
+        checkSlot(p, false);
+        return next[p];
+    }
+
+    /**
+     * unlink the node in slot p in O(1), the slot is reused by a later insert
+     * @param p slot of a node
+     * @return the element it held
+     */
+    public T removeSlot(int p) {
+        checkSlot(p, false);
+        return unlink(p);
+    }
+
+    /**
+     * unlink slot p and put it on the free list
+     * @param p slot
+     * @return the element it held
+     */
+    private T unlink(int p) {
+        prev[next[p]] = prev[p];
+        next[prev[p]] = next[p];
+        theSize--;
+
+        T removedItem = elementAt(p);
+        release(p);
+        return removedItem;
+    }
+
+    public void swap(int idx1, int idx2) {
+        if ((idx1 < 0 || idx1 > size() - 1) ||
+                (idx2 < 0 || idx2 > size() - 1))
+            throw new IndexOutOfBoundsException("not able to swap");
+
+        if (idx1 == idx2)
+            return;
+
+        // p1 is the front one of the pair, like swap(idx2, idx1) in MyLinkedList
+        int p1 = getNode(Math.min(idx1, idx2));
+        int p2 = getNode(Math.max(idx1, idx2));
+
+        // the slots trade places in the chain, each keeps its element
+        if (next[p1] == p2) {
+            // neighbours: change 6 links
+            int before = prev[p1];
+            int after = next[p2];
+            next[before] = p2;
+            prev[p2] = before;
+            next[p2] = p1;
+            prev[p1] = p2;
+            next[p1] = after;
+            prev[after] = p1;
+        } else {
+            // change 8 links
+            int p1Prev = prev[p1];
+            int p1Next = next[p1];
+            int p2Prev = prev[p2];
+            int p2Next = next[p2];
+            next[p1Prev] = p2;
+            prev[p2] = p1Prev;
+            next[p2] = p1Next;
+            prev[p1Next] = p2;
+            next[p2Prev] = p1;
+            prev[p1] = p2Prev;
+            next[p1] = p2Next;
+            prev[p2Next] = p1;
+        }
+    }
+
+    /**
+     * same semantics as MyLinkedList.shift: a positive offset moves the first offset elements to the back,
+     * a negative offset moves the last -offset elements to the front
+     * @param offset shift count
+     */
+    public void shift(int offset) {
+        if (isEmpty())
+            return;
+
+        int shiftCount = offset % size();
+        if (shiftCount < 0)
+            shiftCount += size();
+        if (shiftCount == 0)
+            return;
+
+        // connect the old tail and head into a ring, then cut the ring in front of the new head
+        int head = next[BEGIN];
+        int tail = prev[END];
+        int newHead = getNode(shiftCount);
+        int newTail = prev[newHead];
+
+        next[tail] = head;
+        prev[head] = tail;
+
+        next[BEGIN] = newHead;
+        prev[newHead] = BEGIN;
+        next[newTail] = END;
+        prev[END] = newTail;
+    }
+
+    public void erase(int idx, int eraseSize) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("can not erase elements");
+
+        int current = getNode(idx);
+
+        for (int i = 0; i < eraseSize && current != END; i++) {
+            int following = next[current];
+            unlink(current);
+            current = following;
+        }
+    }
+
+    public void insertList(int idx, ArrayLinkedList<T> list) {
+        // find the insert position once, then copy the elements in front of it
+        int p = getNode(idx, 0, size());
+        for (T x : list)
+            addBefore(p, x);
+    }
+
+    /**
+     * take a slot from the free list, or the next never-used slot, growing the arrays when needed
+     * @return slot
+     */
+    private int allocate() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+
+        if (used == data.length)
+            ensureCapacity(data.length * 2);
+        return used++;
+    }
+
+    /**
+     * a node slot is handed out and linked, released slots have prev == NIL like the beginMarker
+     * @param p slot
+     * @param endAllowed whether the endMarker is accepted
+     */
+    private void checkSlot(int p, boolean endAllowed) {
+        if (p < 0 || p >= used || p == BEGIN || prev[p] == NIL || (p == END && !endAllowed))
+            throw new IllegalArgumentException("not a node slot: " + p);
+    }
+
+    private void release(int p) {
+        data[p] = null; // let gc reclaim the element
+        prev[p] = NIL;
+        next[p] = freeHead;
+        freeHead = p;
+    }
+
+    /**
+     * grow the three arrays, slot numbers stay the same so no link has to change
+     * @param newCapacity new number of slots
+     */
+    public void ensureCapacity(int newCapacity) {
+        if (newCapacity <= data.length)
+            return;
+
+        Object[] oldData = data;
+        int[] oldPrev = prev;
+        int[] oldNext = next;
+        data = new Object[newCapacity];
+        prev = new int[newCapacity];
+        next = new int[newCapacity];
+        System.arraycopy(oldData, 0, data, 0, used);
+        System.arraycopy(oldPrev, 0, prev, 0, used);
+        System.arraycopy(oldNext, 0, next, 0, used);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int p) {
+        return (T) data[p];
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    public Iterator<T> iterator() {
+        return new ArrayLinkedListIterator();
+    }
+
+    private class ArrayLinkedListIterator implements Iterator<T> {
+        private int current = next[BEGIN];
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current != END;
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            T nextItem = elementAt(current);
+            current = next[current];
+            okToRemove = true;
+            return nextItem;
+        }
+
+        public void remove() {
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            unlink(prev[current]);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestArrayLinkedList {
+    public static void main(String[] args) {
+        ArrayLinkedList<Integer> lst = new ArrayLinkedList<Integer>();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println("original list is: " + lst);
+
+        lst.swap(0, 3);
+        System.out.println("swap(0, 3) is: " + lst);
+        int firstSlot = lst.slotOf(0);
+        lst.swap(0, 1);
+        lst.swap(1, 0);
+        lst.swap(0, 1);
+        if (lst.slotOf(1) != firstSlot)
+            System.out.println("swap error: the slot did not follow its element");
+        lst.swap(1, 0);
+        lst.shift(4);
+        System.out.println("shift 4 positions is: " + lst);
+        lst.shift(-4);
+        System.out.println("shift -4 positions is: " + lst);
+        lst.erase(1, 2);
+        System.out.println("erase 2 elements starting from position 1: " + lst);
+        lst.erase(lst.size() - 1, 1);
+        System.out.println("erase the last element: " + lst);
+
+        ArrayLinkedList<Integer> insertList = new ArrayLinkedList<Integer>();
+        for (int i = 0; i < 5; i++)
+            insertList.add(i);
+        lst.insertList(lst.size() - 1, insertList);
+        System.out.println("insert 5 element in the last element: " + lst);
+
+        // relink at known slots: a marker in front of every element, then take the markers out again
+        int end = lst.slotOf(lst.size());
+        for (int p = lst.slotOf(0); p != end; p = lst.nextSlot(p))
+            lst.addBefore(p, -1);
+        System.out.println("marker in front of every element: " + lst);
+        for (int p = lst.slotOf(0); p != end; ) {
+            int marker = p;
+            p = lst.nextSlot(lst.nextSlot(marker));
+            lst.removeSlot(marker);
+        }
+        System.out.println("markers removed by slot: " + lst);
+    }
+}
@@ -0,0 +1,218 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: MyArrayList stored in a circular array. A head offset marks where index 0 lives,
+ * so adding or removing at either end is O(1) amortized, and add(idx)/remove(idx) only shift
+ * the elements on the shorter side of idx. get(idx) stays O(1).
+ */
+public class CircularArrayList<T> implements Iterable<T> {
+    private int theSize;
+    private int head; // physical position of index 0
+    private T[] theItems;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    public CircularArrayList() {
+        clear();
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public T get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return theItems[physical(idx)];
+    }
+
+    public T set(int idx, T newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int p = physical(idx);
+        T old = theItems[p];
+        theItems[p] = newVal;
+        return old;
+    }
+
+    /**
+     * the elements are unwrapped into the new array, so head goes back to 0
+     * @param newCapacity new capacity
+     */
+    @SuppressWarnings("unchecked")
+    public void ensureCapacity(int newCapacity) {
+        if (newCapacity < theSize)
+            return;
+
+        T[] old = theItems;
+        theItems = (T[]) new Object[newCapacity];
+        if (old != null) {
+            int firstPart = Math.min(theSize, old.length - head);
+            System.arraycopy(old, head, theItems, 0, firstPart);
+            System.arraycopy(old, 0, theItems, firstPart, theSize - firstPart);
+        }
+        head = 0;
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void addFirst(T x) {
+        add(0, x);
+    }
+
+    public void addLast(T x) {
+        add(size(), x);
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        if (theItems.length == size())
+            ensureCapacity(size() * 2 + 1);
+
+        if (idx < theSize / 2) {
+            // the front part is shorter, move head one step back and shift [0, idx) to the left
+            head = head == 0 ? theItems.length - 1 : head - 1;
+            for (int i = 0; i < idx; i++)
+                theItems[physical(i)] = theItems[physical(i + 1)];
+        } else {
+            // the back part is shorter, shift [idx, size) to the right
+            for (int i = theSize; i > idx; i--)
+                theItems[physical(i)] = theItems[physical(i - 1)];
+        }
+
+        theItems[physical(idx)] = x;
+        theSize++;
+    }
+
+    public T removeFirst() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        return remove(0);
+    }
+
+    public T removeLast() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        return remove(size() - 1);
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        T removedItem = theItems[physical(idx)];
+
+        if (idx < theSize / 2) {
+            // shift [0, idx) to the right and move head one step forward
+            for (int i = idx; i > 0; i--)
+                theItems[physical(i)] = theItems[physical(i - 1)];
+            theItems[head] = null;
+            head = head + 1 == theItems.length ? 0 : head + 1;
+        } else {
+            // shift (idx, size) to the left
+            for (int i = idx; i < theSize - 1; i++)
+                theItems[physical(i)] = theItems[physical(i + 1)];
+            theItems[physical(theSize - 1)] = null;
+        }
+        theSize--;
+
+        return removedItem;
+    }
+
+    public void clear() {
+        theSize = 0;
+        head = 0;
+        theItems = null;
+        ensureCapacity(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * map a logical index to its position in theItems, without the cost of %
+     * @param idx logical index, 0 <= idx <= size()
+     * @return physical position
+     */
+    private int physical(int idx) {
+        int p = head + idx;
+        return p >= theItems.length ? p - theItems.length : p;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    public Iterator<T> iterator() {
+        return new CircularArrayListIterator();
+    }
+
+    private class CircularArrayListIterator implements Iterator<T> {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return theItems[physical(current++)];
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            CircularArrayList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestCircularArrayList {
+    public static void main(String[] args) {
+        CircularArrayList<Integer> lst = new CircularArrayList<>();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println(lst);
+
+        lst.remove(0);
+        lst.remove(lst.size() - 1);
+        System.out.println(lst);
+
+        // use it as a work queue with both ends
+        lst.addFirst(-1);
+        lst.addLast(100);
+        lst.add(5, 55);
+        System.out.println("removeFirst: " + lst.removeFirst() + ", removeLast: " + lst.removeLast());
+        System.out.println(lst);
+    }
+}
@@ -0,0 +1,164 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: append-only log for one writer thread and any number of reader threads, built like MyArrayList
+ * but without a lock. The writer stores the element first and then publishes the new size with a release
+ * store, a reader reads the size first (acquire) and may then read every index below it.
+ *
+ * Storage is a fixed directory of segments whose sizes double (FIRST, 2*FIRST, 4*FIRST, ...), so growing
+ * allocates a new segment and a published element never moves.
+ */
+public class ConcurrentAppendList<T> implements Iterable<T> {
+    private static final int FIRST_SHIFT = 4; // the first segment holds 2^FIRST_SHIFT elements
+    private static final int MAX_SEGMENTS = 32 - FIRST_SHIFT;
+
+    private final Object[][] segments = new Object[MAX_SEGMENTS][];
+    private final AtomicInteger published = new AtomicInteger(0);
+    private int theSize; // only touched by the writer
+
+    public ConcurrentAppendList() {
+        segments[0] = new Object[1 << FIRST_SHIFT];
+    }
+
+    /**
+     * number of published elements, safe to call from any thread
+     * @return size
+     */
+    public int size() {
+        return published.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * read a published element without taking any lock
+     * @param idx index, must be smaller than size()
+     * @return element
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return (T) elementAt(idx);
+    }
+
+    /**
+     * append x and publish it, must only be called by the single writer thread
+     * @param x element
+     * @return true
+     */
+    public boolean add(T x) {
+        int idx = theSize;
+        if (idx == Integer.MAX_VALUE)
+            throw new IllegalStateException("list is full");
+
+        int k = segmentOf(idx);
+        Object[] seg = segments[k];
+        if (seg == null) {
+            // the last segment is cut short so that indices stay within int range
+            seg = new Object[(int) Math.min((long) (1 << FIRST_SHIFT) << k, Integer.MAX_VALUE - segmentStart(k))];
+            segments[k] = seg; // made visible to readers by the release store below
+        }
+        seg[idx - segmentStart(k)] = x;
+
+        theSize = idx + 1;
+        published.lazySet(theSize); // release: the element and its segment are visible before the new size
+        return true;
+    }
+
+    private Object elementAt(int idx) {
+        int k = segmentOf(idx);
+        return segments[k][idx - segmentStart(k)];
+    }
+
+    /**
+     * segment k starts at FIRST * (2^k - 1), so idx lives in segment floor(log2(idx / FIRST + 1))
+     */
+    private static int segmentOf(int idx) {
+        return 31 - Integer.numberOfLeadingZeros((idx >>> FIRST_SHIFT) + 1);
+    }
+
+    private static int segmentStart(int k) {
+        return ((1 << k) - 1) << FIRST_SHIFT;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    /**
+     * the iterator sees the elements published when it was created, appends made later are not visited
+     * @return iterator
+     */
+    public Iterator<T> iterator() {
+        return new AppendListIterator(size());
+    }
+
+    private class AppendListIterator implements Iterator<T> {
+        private int current = 0;
+        private final int fence;
+
+        AppendListIterator(int fence) {
+            this.fence = fence;
+        }
+
+        public boolean hasNext() {
+            return current < fence;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return (T) elementAt(current++);
+        }
+    }
+}
+
+class TestConcurrentAppendList {
+    public static void main(String[] args) throws InterruptedException {
+        final ConcurrentAppendList<Integer> lst = new ConcurrentAppendList<>();
+        final int n = 1000000;
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; i++)
+                lst.add(i);
+        });
+
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int seen = 0;
+                while (seen < n) {
+                    int size = lst.size();
+                    for (; seen < size; seen++)
+                        if (lst.get(seen) != seen)
+                            System.out.println("OOPS!! index " + seen);
+                }
+            });
+            readers[r].start();
+        }
+        writer.start();
+
+        writer.join();
+        for (Thread reader : readers)
+            reader.join();
+        System.out.println("size is: " + lst.size());
+    }
+}
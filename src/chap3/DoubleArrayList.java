@@ -0,0 +1,165 @@
+package chap3;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: same API as MyArrayList, but values are kept in a double[], so nothing is boxed
+ */
+public class DoubleArrayList implements Iterable<Double> {
+    private int theSize;
+    private double[] theItems;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    public DoubleArrayList() {
+        clear();
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public double get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return theItems[idx];
+    }
+
+    public double set(int idx, double newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        double old = theItems[idx];
+        theItems[idx] = newVal;
+        return old;
+    }
+
+    public void ensureCapacity(int newCapacity) {
+        if (newCapacity < theSize)
+            return;
+
+        double[] old = theItems;
+        theItems = new double[newCapacity];
+        if (old != null)
+            System.arraycopy(old, 0, theItems, 0, size());
+    }
+
+    public boolean add(double x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, double x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        if (theItems.length == size())
+            ensureCapacity(size() * 2 + 1);
+
+        // shift the tail with one block copy instead of moving element by element
+        System.arraycopy(theItems, idx, theItems, idx + 1, theSize - idx);
+
+        theItems[idx] = x;
+        theSize++;
+    }
+
+    public double remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        double removedItem = theItems[idx];
+
+        System.arraycopy(theItems, idx + 1, theItems, idx, theSize - idx - 1);
+        theSize--;
+
+        return removedItem;
+    }
+
+    public void clear() {
+        theSize = 0;
+        ensureCapacity(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * copy the values into a new array of exactly size() length
+     * @return double array
+     */
+    public double[] toArray() {
+        double[] result = new double[theSize];
+        System.arraycopy(theItems, 0, result, 0, theSize);
+        return result;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (int i = 0; i < theSize; i++)
+            sb.append(theItems[i]).append(" ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    /**
+     * use nextDouble() on the returned iterator to avoid boxing, next() is only there for for-each loops
+     * @return primitive iterator
+     */
+    public PrimitiveIterator.OfDouble iterator() {
+        return new DoubleArrayListIterator();
+    }
+
+    private class DoubleArrayListIterator implements PrimitiveIterator.OfDouble {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public double nextDouble() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return theItems[current++];
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            DoubleArrayList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestDoubleArrayList {
+    public static void main(String[] args) {
+        DoubleArrayList lst = new DoubleArrayList();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println(lst);
+
+        lst.remove(0);
+        lst.remove(lst.size() - 1);
+        System.out.println(lst);
+
+        double sum = 0;
+        PrimitiveIterator.OfDouble itr = lst.iterator();
+        while (itr.hasNext())
+            sum += itr.nextDouble();
+        System.out.println("sum is: " + sum);
+    }
+}
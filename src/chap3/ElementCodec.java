@@ -0,0 +1,75 @@
+package chap3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: encode a fixed-width element into raw bytes, used by the off-heap and file-backed lists.
+ * A fixed-size struct is supported by implementing this interface with the total width of its fields.
+ */
+public interface ElementCodec<T> {
+
+    /**
+     * @return number of bytes one element occupies, must never change
+     */
+    int width();
+
+    /**
+     * read the element stored at offset
+     * @param buf buffer
+     * @param offset byte offset of the element
+     * @return element
+     */
+    T read(ByteBuffer buf, int offset);
+
+    /**
+     * write x at offset, exactly width() bytes are written
+     * @param buf buffer
+     * @param offset byte offset of the element
+     * @param x element
+     */
+    void write(ByteBuffer buf, int offset, T x);
+
+    ElementCodec<Integer> INT = new ElementCodec<Integer>() {
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        public Integer read(ByteBuffer buf, int offset) {
+            return buf.getInt(offset);
+        }
+
+        public void write(ByteBuffer buf, int offset, Integer x) {
+            buf.putInt(offset, x);
+        }
+    };
+
+    ElementCodec<Long> LONG = new ElementCodec<Long>() {
+        public int width() {
+            return Long.BYTES;
+        }
+
+        public Long read(ByteBuffer buf, int offset) {
+            return buf.getLong(offset);
+        }
+
+        public void write(ByteBuffer buf, int offset, Long x) {
+            buf.putLong(offset, x);
+        }
+    };
+
+    ElementCodec<Double> DOUBLE = new ElementCodec<Double>() {
+        public int width() {
+            return Double.BYTES;
+        }
+
+        public Double read(ByteBuffer buf, int offset) {
+            return buf.getDouble(offset);
+        }
+
+        public void write(ByteBuffer buf, int offset, Double x) {
+            buf.putDouble(offset, x);
+        }
+    };
+}
@@ -0,0 +1,200 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: MyArrayList stored as a gap buffer. The free slots of the array form one gap that
+ * follows the last edit position, so repeated add/remove near the same cursor are O(1) amortized;
+ * moving the cursor by d positions costs O(d). get(idx) stays O(1).
+ *
+ * theItems: | elements [0, gapStart) | gap [gapStart, gapEnd) | elements [gapStart, size) |
+ */
+public class GapBufferList<T> implements Iterable<T> {
+    private T[] theItems;
+    private int gapStart;
+    private int gapEnd;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    public GapBufferList() {
+        clear();
+    }
+
+    public int size() {
+        return theItems.length - (gapEnd - gapStart);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public T get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return theItems[physical(idx)];
+    }
+
+    public T set(int idx, T newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int p = physical(idx);
+        T old = theItems[p];
+        theItems[p] = newVal;
+        return old;
+    }
+
+    /**
+     * the gap keeps its position, the extra space is added to it
+     * @param newCapacity new capacity
+     */
+    @SuppressWarnings("unchecked")
+    public void ensureCapacity(int newCapacity) {
+        int size = theItems == null ? 0 : size();
+        if (newCapacity < size)
+            return;
+
+        T[] old = theItems;
+        theItems = (T[]) new Object[newCapacity];
+        if (old != null) {
+            int tail = old.length - gapEnd;
+            System.arraycopy(old, 0, theItems, 0, gapStart);
+            System.arraycopy(old, gapEnd, theItems, newCapacity - tail, tail);
+            gapEnd = newCapacity - tail;
+        } else {
+            gapStart = 0;
+            gapEnd = newCapacity;
+        }
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        if (gapStart == gapEnd)
+            ensureCapacity(size() * 2 + 1);
+
+        moveGap(idx);
+        theItems[gapStart++] = x;
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        moveGap(idx);
+        T removedItem = theItems[gapEnd];
+        theItems[gapEnd++] = null;
+
+        return removedItem;
+    }
+
+    public void clear() {
+        theItems = null;
+        ensureCapacity(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * move the gap so that it starts at logical index idx, only the elements between
+     * the old and the new gap position are copied
+     * @param idx new gap position
+     */
+    private void moveGap(int idx) {
+        if (idx < gapStart) {
+            int count = gapStart - idx;
+            System.arraycopy(theItems, idx, theItems, gapEnd - count, count);
+            clearSlots(idx, Math.min(gapStart, gapEnd - count));
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (idx > gapStart) {
+            int count = idx - gapStart;
+            System.arraycopy(theItems, gapEnd, theItems, gapStart, count);
+            clearSlots(Math.max(gapEnd, gapStart + count), gapEnd + count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    /**
+     * null out slots that now belong to the gap, so that gc can reclaim the old references
+     */
+    private void clearSlots(int from, int to) {
+        for (int i = from; i < to; i++)
+            theItems[i] = null;
+    }
+
+    private int physical(int idx) {
+        return idx < gapStart ? idx : idx + (gapEnd - gapStart);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    public Iterator<T> iterator() {
+        return new GapBufferListIterator();
+    }
+
+    private class GapBufferListIterator implements Iterator<T> {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return theItems[physical(current++)];
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            GapBufferList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestGapBufferList {
+    public static void main(String[] args) {
+        GapBufferList<Integer> lst = new GapBufferList<>();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println(lst);
+
+        lst.remove(0);
+        lst.remove(lst.size() - 1);
+        System.out.println(lst);
+
+        // edits around one cursor
+        for (int i = 0; i < 3; i++)
+            lst.add(5 + i, 100 + i);
+        lst.remove(7);
+        lst.set(5, -5);
+        System.out.println(lst);
+    }
+}
@@ -0,0 +1,393 @@
+package chap3;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: sequence stored as an implicit treap, with the MyLinkedList API. Nodes are ordered by position
+ * instead of by key, a position is found from the subtree sizes, and random priorities keep the tree balanced.
+ * Everything is built on two O(log n) primitives: split (cut the sequence at a position) and merge
+ * (concatenate two sequences). So get/set/add/remove, shift (rotate), erase (cut a range) and splice
+ * (concatenate) are all O(log n) expected.
+ */
+public class ImplicitTreapList<T> implements Iterable<T> {
+    private Node<T> root;
+    private final Random random = new Random();
+
+    // results of split(), kept in fields so that split does not allocate
+    private Node<T> splitLeft;
+    private Node<T> splitRight;
+
+    public ImplicitTreapList() {
+        clear();
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("add index: " + idx + "; size: " + size());
+
+        split(root, idx);
+        Node<T> right = splitRight;
+        root = merge(merge(splitLeft, new Node<T>(x, random.nextInt())), right);
+    }
+
+    public T get(int idx) {
+        return getNode(idx).data;
+    }
+
+    public T set(int idx, T newVal) {
+        Node<T> p = getNode(idx);
+        T oldVal = p.data;
+
+        p.data = newVal;
+
+        return oldVal;
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("remove index: " + idx + "; size: " + size());
+
+        split(root, idx);
+        Node<T> left = splitLeft;
+        split(splitRight, 1);
+        T removedItem = splitLeft.data;
+        root = merge(left, splitRight);
+
+        return removedItem;
+    }
+
+    public void swap(int idx1, int idx2) {
+        if ((idx1 < 0 || idx1 > size() - 1) ||
+                (idx2 < 0 || idx2 > size() - 1))
+            throw new IndexOutOfBoundsException("not able to swap");
+
+        Node<T> p1 = getNode(idx1);
+        Node<T> p2 = getNode(idx2);
+        T temp = p1.data;
+        p1.data = p2.data;
+        p2.data = temp;
+    }
+
+    /**
+     * same semantics as MyLinkedList.shift: a positive offset moves the first offset elements to the back,
+     * a negative offset moves the last -offset elements to the front. One split and one merge.
+     * @param offset shift count
+     */
+    public void shift(int offset) {
+        if (isEmpty())
+            return;
+
+        int shiftCount = offset % size();
+        if (shiftCount < 0)
+            shiftCount += size();
+        if (shiftCount == 0)
+            return;
+
+        split(root, shiftCount);
+        root = merge(splitRight, splitLeft);
+    }
+
+    /**
+     * remove eraseSize elements starting from idx, stops at the end of the list. Two splits and one merge.
+     * @param idx first position to erase
+     * @param eraseSize number of elements
+     */
+    public void erase(int idx, int eraseSize) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("can not erase elements");
+
+        split(root, idx);
+        Node<T> left = splitLeft;
+        split(splitRight, Math.min(eraseSize, size(splitRight)));
+        root = merge(left, splitRight);
+    }
+
+    /**
+     * copy the elements of list in front of position idx. The copy is built as a treap in O(m),
+     * then it is merged in with O(log n) work.
+     * @param idx insert position, 0 <= idx <= size()
+     * @param list elements to insert
+     */
+    public void insertList(int idx, ImplicitTreapList<T> list) {
+        ImplicitTreapList<T> copy = new ImplicitTreapList<T>();
+        copy.root = copy.build(list);
+        splice(idx, copy);
+    }
+
+    /**
+     * move all the elements of other in front of position idx in O(log n), other is empty afterwards
+     * @param idx insert position, 0 <= idx <= size()
+     * @param other list to splice in, must not be this list
+     */
+    public void splice(int idx, ImplicitTreapList<T> other) {
+        if (other == this)
+            throw new IllegalArgumentException("can not splice a list into itself");
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("splice index: " + idx + "; size: " + size());
+
+        split(root, idx);
+        Node<T> right = splitRight;
+        root = merge(merge(splitLeft, other.root), right);
+        other.root = null;
+    }
+
+    /**
+     * cut this list in two in O(log n), this list keeps [0, idx) and the rest is returned
+     * @param idx first position of the returned list, 0 <= idx <= size()
+     * @return new list holding the former elements [idx, size())
+     */
+    public ImplicitTreapList<T> splitAt(int idx) {
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("splitAt index: " + idx + "; size: " + size());
+
+        split(root, idx);
+        ImplicitTreapList<T> tail = new ImplicitTreapList<T>();
+        tail.root = splitRight;
+        root = splitLeft;
+
+        return tail;
+    }
+
+    private Node<T> getNode(int idx) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("getNode index: " + idx + "; size: " + size());
+
+        Node<T> p = root;
+        while (true) {
+            int leftSize = size(p.left);
+            if (idx < leftSize) {
+                p = p.left;
+            } else if (idx > leftSize) {
+                idx -= leftSize + 1;
+                p = p.right;
+            } else {
+                return p;
+            }
+        }
+    }
+
+    /**
+     * split t into the first k elements (splitLeft) and the rest (splitRight)
+     * @param t root of the subtree
+     * @param k number of elements that go to splitLeft
+     */
+    private void split(Node<T> t, int k) {
+        if (t == null) {
+            splitLeft = splitRight = null;
+            return;
+        }
+
+        if (size(t.left) >= k) {
+            split(t.left, k);
+            t.left = splitRight;
+            update(t);
+            splitRight = t;
+        } else {
+            split(t.right, k - size(t.left) - 1);
+            t.right = splitLeft;
+            update(t);
+            splitLeft = t;
+        }
+    }
+
+    /**
+     * concatenate two treaps, every element of a comes before every element of b
+     * @return root of the merged treap
+     */
+    private Node<T> merge(Node<T> a, Node<T> b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+    /**
+     * build a treap holding the elements of list in order, in O(m): the right spine is kept on a stack
+     * and every new node pops the nodes with a lower priority as its left subtree
+     * @param list source
+     * @return root
+     */
+    private Node<T> build(Iterable<T> list) {
+        Deque<Node<T>> spine = new ArrayDeque<Node<T>>();
+        for (T x : list) {
+            Node<T> node = new Node<T>(x, random.nextInt());
+            Node<T> last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority)
+                last = spine.pop();
+            node.left = last;
+            if (!spine.isEmpty())
+                spine.peek().right = node;
+            spine.push(node);
+        }
+
+        Node<T> t = spine.peekLast();
+        fixSizes(t);
+        return t;
+    }
+
+    private int fixSizes(Node<T> t) {
+        if (t == null)
+            return 0;
+
+        t.size = fixSizes(t.left) + fixSizes(t.right) + 1;
+        return t.size;
+    }
+
+    private static <T> int size(Node<T> t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static <T> void update(Node<T> t) {
+        t.size = size(t.left) + size(t.right) + 1;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    public Iterator<T> iterator() {
+        return new TreapIterator();
+    }
+
+    /**
+     * in-order walk with an explicit stack of the nodes whose left subtree is being visited
+     */
+    private class TreapIterator implements Iterator<T> {
+        private final Deque<Node<T>> stack = new ArrayDeque<Node<T>>();
+        private int index = 0; // position of the element next() returns
+        private boolean okToRemove = false;
+
+        TreapIterator() {
+            pushLeft(root);
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Node<T> p = stack.pop();
+            pushLeft(p.right);
+            index++;
+            okToRemove = true;
+            return p.data;
+        }
+
+        public void remove() {
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            // the tree changes shape, so rebuild the stack down to the next position
+            ImplicitTreapList.this.remove(--index);
+            stack.clear();
+            Node<T> p = root;
+            int idx = index;
+            while (p != null) {
+                int leftSize = size(p.left);
+                if (idx < leftSize) {
+                    stack.push(p);
+                    p = p.left;
+                } else if (idx > leftSize) {
+                    idx -= leftSize + 1;
+                    p = p.right;
+                } else {
+                    stack.push(p);
+                    break;
+                }
+            }
+            okToRemove = false;
+        }
+
+        private void pushLeft(Node<T> p) {
+            for (; p != null; p = p.left)
+                stack.push(p);
+        }
+    }
+
+    private static class Node<T> {
+        public T data;
+        public final int priority;
+        public int size;
+        public Node<T> left;
+        public Node<T> right;
+
+        public Node(T data, int priority) {
+            this.data = data;
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+}
+
+class TestImplicitTreapList {
+    public static void main(String[] args) {
+        ImplicitTreapList<Integer> lst = new ImplicitTreapList<Integer>();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println("original list is: " + lst);
+
+        lst.swap(0, 3);
+        System.out.println("swap(0, 3) is: " + lst);
+        lst.shift(4);
+        System.out.println("shift 4 positions is: " + lst);
+        lst.shift(-4);
+        System.out.println("shift -4 positions is: " + lst);
+        lst.erase(1, 2);
+        System.out.println("erase 2 elements starting from position 1: " + lst);
+
+        ImplicitTreapList<Integer> insertList = new ImplicitTreapList<Integer>();
+        for (int i = 0; i < 5; i++)
+            insertList.add(i);
+        lst.insertList(lst.size() - 1, insertList);
+        System.out.println("insert 5 element in the last element: " + lst);
+
+        ImplicitTreapList<Integer> tail = lst.splitAt(5);
+        lst.splice(2, tail);
+        System.out.println("splitAt(5) then splice at 2: " + lst);
+    }
+}
@@ -0,0 +1,359 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: indexable skip list with the MyLinkedList API. Every forward link also stores its width,
+ * which is the number of level-0 steps it skips, so a position is found by adding up widths on the way
+ * down. get, set, add(idx) and remove(idx) are O(log n) expected, iteration walks level 0 like a plain
+ * linked list.
+ *
+ * Positions: beginMarker is at -1, the elements are at 0 .. size()-1, endMarker is at size().
+ */
+public class IndexableSkipList<T> implements Iterable<T> {
+    private static final int MAX_LEVEL = 32;
+
+    private int theSize;
+    private int level; // number of levels in use
+    private Node<T> beginMarker;
+    private Node<T> endMarker;
+    private final Random random = new Random();
+
+    // scratch arrays for the predecessor search, reused by every add/remove
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Node<T>[] update = (Node<T>[]) new Node[MAX_LEVEL];
+    private final int[] updatePos = new int[MAX_LEVEL];
+
+    public IndexableSkipList() {
+        clear();
+    }
+
+    public void clear() {
+        endMarker = new Node<T>(null, 0);
+        beginMarker = new Node<T>(null, MAX_LEVEL);
+        beginMarker.next[0] = endMarker;
+        beginMarker.width[0] = 1;
+        level = 1;
+
+        theSize = 0;
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("add index: " + idx + "; size: " + size());
+
+        findPredecessors(idx);
+
+        int h = randomLevel();
+        if (h > level) {
+            // the new levels start as one link from beginMarker to endMarker
+            for (int lvl = level; lvl < h; lvl++) {
+                beginMarker.next[lvl] = endMarker;
+                beginMarker.width[lvl] = theSize + 1;
+                update[lvl] = beginMarker;
+                updatePos[lvl] = -1;
+            }
+            level = h;
+        }
+
+        Node<T> newNode = new Node<T>(x, h);
+        for (int lvl = 0; lvl < h; lvl++) {
+            Node<T> u = update[lvl];
+            int nextPos = updatePos[lvl] + u.width[lvl] + 1; // position of u.next after the insert
+            newNode.next[lvl] = u.next[lvl];
+            newNode.width[lvl] = nextPos - idx;
+            u.next[lvl] = newNode;
+            u.width[lvl] = idx - updatePos[lvl];
+        }
+        // higher links jump over the new node
+        for (int lvl = h; lvl < level; lvl++)
+            update[lvl].width[lvl]++;
+
+        theSize++;
+    }
+
+    public T get(int idx) {
+        return getNode(idx).data;
+    }
+
+    public T set(int idx, T newVal) {
+        Node<T> p = getNode(idx);
+        T oldVal = p.data;
+
+        p.data = newVal;
+
+        return oldVal;
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("remove index: " + idx + "; size: " + size());
+
+        findPredecessors(idx);
+        Node<T> p = update[0].next[0];
+
+        for (int lvl = 0; lvl < level; lvl++) {
+            Node<T> u = update[lvl];
+            if (u.next[lvl] == p) {
+                u.width[lvl] += p.width[lvl] - 1;
+                u.next[lvl] = p.next[lvl];
+            } else {
+                u.width[lvl]--;
+            }
+        }
+
+        // drop the levels which are empty now
+        while (level > 1 && beginMarker.next[level - 1] == endMarker) {
+            beginMarker.next[level - 1] = null;
+            level--;
+        }
+
+        theSize--;
+        return p.data;
+    }
+
+    public void swap(int idx1, int idx2) {
+        if ((idx1 < 0 || idx1 > size() - 1) ||
+                (idx2 < 0 || idx2 > size() - 1))
+            throw new IndexOutOfBoundsException("not able to swap");
+
+        // the towers stay where they are, only the elements trade places
+        Node<T> p1 = getNode(idx1);
+        Node<T> p2 = getNode(idx2);
+        T temp = p1.data;
+        p1.data = p2.data;
+        p2.data = temp;
+    }
+
+    /**
+     * same semantics as MyLinkedList.shift: a positive offset moves the first offset elements to the back,
+     * a negative offset moves the last -offset elements to the front.
+     * Every level is cut at shiftCount and its two runs are swapped, so only the links at the cut and at
+     * the two ends change: O(log n) expected.
+     * @param offset shift count
+     */
+    public void shift(int offset) {
+        if (isEmpty())
+            return;
+
+        int shiftCount = offset % size();
+        if (shiftCount < 0)
+            shiftCount += size();
+        if (shiftCount == 0)
+            return;
+
+        // front run: positions [0, shiftCount), it moves up by backSize
+        // back run: positions [shiftCount, size()), it moves down by shiftCount
+        int n = size();
+        int backSize = n - shiftCount;
+        findPredecessors(shiftCount);
+
+        // the last node of every level is found on the way down, before that level is relinked
+        Node<T> backLast = beginMarker;
+        int backLastPos = -1;
+        for (int lvl = level - 1; lvl >= 0; lvl--) {
+            while (backLastPos + backLast.width[lvl] < n) {
+                backLastPos += backLast.width[lvl];
+                backLast = backLast.next[lvl];
+            }
+
+            Node<T> frontFirst = beginMarker.next[lvl];
+            int frontFirstPos = beginMarker.width[lvl] - 1;
+            Node<T> frontLast = update[lvl];
+            int frontLastPos = updatePos[lvl];
+            Node<T> backFirst = frontLast.next[lvl];
+            int backFirstPos = frontLastPos + frontLast.width[lvl];
+            boolean hasFront = frontLast != beginMarker;
+            boolean hasBack = backFirst != endMarker;
+
+            if (hasBack) {
+                beginMarker.next[lvl] = backFirst;
+                beginMarker.width[lvl] = backFirstPos - shiftCount + 1;
+                backLast.next[lvl] = hasFront ? frontFirst : endMarker;
+                backLast.width[lvl] = (hasFront ? frontFirstPos + backSize : n) - (backLastPos - shiftCount);
+            } else {
+                beginMarker.width[lvl] = frontFirstPos + backSize + 1;
+            }
+            if (hasFront) {
+                frontLast.next[lvl] = endMarker;
+                frontLast.width[lvl] = n - (frontLastPos + backSize);
+            }
+        }
+    }
+
+    public void erase(int idx, int eraseSize) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("can not erase elements");
+
+        int count = Math.min(eraseSize, size() - idx);
+        for (int i = 0; i < count; i++)
+            remove(idx);
+    }
+
+    public void insertList(int idx, IndexableSkipList<T> list) {
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("insertList index: " + idx + "; size: " + size());
+
+        int i = idx;
+        for (T x : list)
+            add(i++, x);
+    }
+
+    /**
+     * find the node at position idx by adding up the widths from the top level down
+     * @param idx position, 0 <= idx < size()
+     * @return node
+     */
+    private Node<T> getNode(int idx) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("getNode index: " + idx + "; size: " + size());
+
+        Node<T> p = beginMarker;
+        int pos = -1;
+        for (int lvl = level - 1; lvl >= 0; lvl--) {
+            while (pos + p.width[lvl] <= idx) {
+                pos += p.width[lvl];
+                p = p.next[lvl];
+            }
+        }
+
+        return p;
+    }
+
+    /**
+     * fill update[lvl] with the last node before position idx on every level, and updatePos with its position
+     * @param idx position, 0 <= idx <= size()
+     */
+    private void findPredecessors(int idx) {
+        Node<T> p = beginMarker;
+        int pos = -1;
+        for (int lvl = level - 1; lvl >= 0; lvl--) {
+            while (pos + p.width[lvl] < idx) {
+                pos += p.width[lvl];
+                p = p.next[lvl];
+            }
+            update[lvl] = p;
+            updatePos[lvl] = pos;
+        }
+    }
+
+    /**
+     * level h with probability 2^-h
+     */
+    private int randomLevel() {
+        int h = 1 + Integer.numberOfTrailingZeros(random.nextInt() | (1 << (MAX_LEVEL - 2)));
+        return Math.min(h, MAX_LEVEL);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    public Iterator<T> iterator() {
+        return new SkipListIterator();
+    }
+
+    private class SkipListIterator implements Iterator<T> {
+        private Node<T> current = beginMarker.next[0];
+        private int index = 0; // position of current
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current != endMarker;
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            T nextItem = current.data;
+            current = current.next[0];
+            index++;
+            okToRemove = true;
+            return nextItem;
+        }
+
+        public void remove() {
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            // the towers before the element are needed, so remove by position
+            IndexableSkipList.this.remove(--index);
+            okToRemove = false;
+        }
+    }
+
+    private static class Node<T> {
+        public T data;
+        public Node<T>[] next;
+        public int[] width;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Node(T data, int height) {
+            this.data = data;
+            this.next = (Node<T>[]) new Node[height];
+            this.width = new int[height];
+        }
+    }
+}
+
+class TestIndexableSkipList {
+    public static void main(String[] args) {
+        IndexableSkipList<Integer> lst = new IndexableSkipList<Integer>();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println("original list is: " + lst);
+
+        lst.swap(0, 3);
+        System.out.println("swap(0, 3) is: " + lst);
+        lst.shift(4);
+        System.out.println("shift 4 positions is: " + lst);
+        lst.shift(-4);
+        System.out.println("shift -4 positions is: " + lst);
+        lst.erase(1, 2);
+        System.out.println("erase 2 elements starting from position 1: " + lst);
+
+        IndexableSkipList<Integer> insertList = new IndexableSkipList<Integer>();
+        for (int i = 0; i < 5; i++)
+            insertList.add(i);
+        lst.insertList(lst.size() - 1, insertList);
+        System.out.println("insert 5 element in the last element: " + lst);
+        System.out.println("get(10) is: " + lst.get(10));
+
+        // shift relinks the towers, so check positions on a list with many levels
+        IndexableSkipList<Integer> big = new IndexableSkipList<Integer>();
+        for (int i = 0; i < 1000; i++)
+            big.add(i);
+        big.shift(337);
+        big.shift(-1000 + 12);
+        for (int i = 0; i < 1000; i++)
+            if (big.get(i) != (i + 349) % 1000)
+                System.out.println("shift error at " + i);
+    }
+}
@@ -0,0 +1,165 @@
+package chap3;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: same API as MyArrayList, but values are kept in an int[], so nothing is boxed
+ */
+public class IntArrayList implements Iterable<Integer> {
+    private int theSize;
+    private int[] theItems;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    public IntArrayList() {
+        clear();
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return theItems[idx];
+    }
+
+    public int set(int idx, int newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int old = theItems[idx];
+        theItems[idx] = newVal;
+        return old;
+    }
+
+    public void ensureCapacity(int newCapacity) {
+        if (newCapacity < theSize)
+            return;
+
+        int[] old = theItems;
+        theItems = new int[newCapacity];
+        if (old != null)
+            System.arraycopy(old, 0, theItems, 0, size());
+    }
+
+    public boolean add(int x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, int x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        if (theItems.length == size())
+            ensureCapacity(size() * 2 + 1);
+
+        // shift the tail with one block copy instead of moving element by element
+        System.arraycopy(theItems, idx, theItems, idx + 1, theSize - idx);
+
+        theItems[idx] = x;
+        theSize++;
+    }
+
+    public int remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int removedItem = theItems[idx];
+
+        System.arraycopy(theItems, idx + 1, theItems, idx, theSize - idx - 1);
+        theSize--;
+
+        return removedItem;
+    }
+
+    public void clear() {
+        theSize = 0;
+        ensureCapacity(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * copy the values into a new array of exactly size() length
+     * @return int array
+     */
+    public int[] toArray() {
+        int[] result = new int[theSize];
+        System.arraycopy(theItems, 0, result, 0, theSize);
+        return result;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (int i = 0; i < theSize; i++)
+            sb.append(theItems[i]).append(" ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    /**
+     * use nextInt() on the returned iterator to avoid boxing, next() is only there for for-each loops
+     * @return primitive iterator
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntArrayListIterator();
+    }
+
+    private class IntArrayListIterator implements PrimitiveIterator.OfInt {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return theItems[current++];
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            IntArrayList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestIntArrayList {
+    public static void main(String[] args) {
+        IntArrayList lst = new IntArrayList();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println(lst);
+
+        lst.remove(0);
+        lst.remove(lst.size() - 1);
+        System.out.println(lst);
+
+        long sum = 0;
+        PrimitiveIterator.OfInt itr = lst.iterator();
+        while (itr.hasNext())
+            sum += itr.nextInt();
+        System.out.println("sum is: " + sum);
+    }
+}
@@ -0,0 +1,452 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: lock-free double-linked deque with the beginMarker/endMarker layout of MyLinkedList.
+ * It follows the algorithm of Sundell and Tsigas, "Lock-free deques and doubly linked lists" (2008):
+ * prev and next are AtomicMarkableReferences, a node is logically deleted by marking its next link,
+ * then its prev link, and then it is unlinked with CAS. The next chain is always correct, the prev
+ * chain is only a hint which is repaired by helpInsert, any thread may help to finish another thread's
+ * operation.
+ */
+public class LockFreeLinkedDeque<T> implements Iterable<T> {
+    private final Node<T> beginMarker;
+    private final Node<T> endMarker;
+
+    public LockFreeLinkedDeque() {
+        beginMarker = new Node<T>(null);
+        endMarker = new Node<T>(null);
+        beginMarker.next.set(endMarker, false);
+        endMarker.prev.set(beginMarker, false);
+    }
+
+    public void addFirst(T x) {
+        if (x == null)
+            throw new NullPointerException();
+
+        Node<T> node = new Node<T>(x);
+        Node<T> prev = beginMarker;
+        Node<T> next = prev.next.getReference();
+        while (true) {
+            if (!isLink(prev.next, next)) {
+                next = prev.next.getReference();
+                continue;
+            }
+
+            node.prev.set(prev, false);
+            node.next.set(next, false);
+            if (prev.next.compareAndSet(next, node, false, false))
+                break;
+        }
+        linkPrev(node, next);
+    }
+
+    public void addLast(T x) {
+        if (x == null)
+            throw new NullPointerException();
+
+        Node<T> node = new Node<T>(x);
+        Node<T> next = endMarker;
+        Node<T> prev = next.prev.getReference();
+        while (true) {
+            if (!isLink(prev.next, next)) {
+                // endMarker.prev is behind, find the real last node first
+                prev = helpInsert(prev, next);
+                continue;
+            }
+
+            node.prev.set(prev, false);
+            node.next.set(next, false);
+            if (prev.next.compareAndSet(next, node, false, false))
+                break;
+        }
+        linkPrev(node, next);
+    }
+
+    /**
+     * remove and return the first element
+     * @return first element, or null if the deque is empty
+     */
+    public T pollFirst() {
+        Node<T> prev = beginMarker;
+        boolean[] mark = new boolean[1];
+        while (true) {
+            Node<T> node = prev.next.getReference();
+            if (node == endMarker)
+                return null;
+
+            Node<T> link1 = node.next.get(mark);
+            if (mark[0]) {
+                // node is being deleted by somebody else, help to unlink it
+                setMark(node.prev);
+                prev.next.compareAndSet(node, link1, false, false);
+                continue;
+            }
+
+            if (node.next.compareAndSet(link1, link1, false, true)) {
+                helpDelete(node);
+                helpInsert(prev, node.next.getReference());
+                return node.data;
+            }
+        }
+    }
+
+    /**
+     * remove and return the last element
+     * @return last element, or null if the deque is empty
+     */
+    public T pollLast() {
+        Node<T> next = endMarker;
+        Node<T> node = next.prev.getReference();
+        while (true) {
+            if (!isLink(node.next, next)) {
+                node = helpInsert(node, next);
+                continue;
+            }
+            if (node == beginMarker)
+                return null;
+
+            if (node.next.compareAndSet(next, next, false, true)) {
+                helpDelete(node);
+                helpInsert(node.prev.getReference(), next);
+                return node.data;
+            }
+        }
+    }
+
+    /**
+     * @return first element, or null if the deque is empty
+     */
+    public T peekFirst() {
+        for (T x : this)
+            return x;
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return peekFirst() == null;
+    }
+
+    /**
+     * count the elements by walking the list, the result is only a snapshot when other threads are working
+     * @return number of elements
+     */
+    public int size() {
+        int count = 0;
+        for (T x : this)
+            count++;
+        return count;
+    }
+
+    /**
+     * second half of an insert: make next.prev point to the new node
+     */
+    private void linkPrev(Node<T> node, Node<T> next) {
+        boolean[] mark = new boolean[1];
+        while (true) {
+            Node<T> link1 = next.prev.get(mark);
+            if (mark[0] || !isLink(node.next, next))
+                break;
+
+            if (next.prev.compareAndSet(link1, node, false, false)) {
+                if (node.prev.isMarked())
+                    helpInsert(node, next);
+                break;
+            }
+        }
+    }
+
+    /**
+     * unlink a node whose next link is already marked
+     * @param node node to delete
+     */
+    private void helpDelete(Node<T> node) {
+        setMark(node.prev);
+
+        boolean lastLinkMarked = true;
+        boolean[] mark = new boolean[1];
+        Node<T> prev = node.prev.getReference();
+        Node<T> next = node.next.getReference();
+        while (true) {
+            if (prev == next)
+                break;
+
+            if (next.next.isMarked()) {
+                // next is being deleted as well, skip it
+                setMark(next.prev);
+                next = next.next.getReference();
+                continue;
+            }
+
+            Node<T> prev2 = prev.next.get(mark);
+            if (mark[0]) {
+                // prev is being deleted, step back
+                if (!lastLinkMarked) {
+                    helpDelete(prev);
+                    lastLinkMarked = true;
+                }
+                prev = prev.prev.getReference();
+                continue;
+            }
+
+            if (prev2 != node) {
+                lastLinkMarked = false;
+                prev = prev2;
+                continue;
+            }
+
+            if (prev.next.compareAndSet(node, next, false, false))
+                break;
+        }
+    }
+
+    /**
+     * repair node.prev so that it points to the real predecessor, starting the search at prev
+     * @param prev node known to be before node
+     * @param node node whose prev link is fixed
+     * @return the real predecessor
+     */
+    private Node<T> helpInsert(Node<T> prev, Node<T> node) {
+        boolean lastLinkMarked = true;
+        boolean[] mark = new boolean[1];
+        while (true) {
+            Node<T> prev2 = prev.next.get(mark);
+            if (mark[0]) {
+                if (!lastLinkMarked) {
+                    helpDelete(prev);
+                    lastLinkMarked = true;
+                }
+                prev = prev.prev.getReference();
+                continue;
+            }
+
+            Node<T> link1 = node.prev.get(mark);
+            if (mark[0])
+                break;
+
+            if (prev2 != node) {
+                lastLinkMarked = false;
+                prev = prev2;
+                continue;
+            }
+
+            if (node.prev.compareAndSet(link1, prev, false, false)) {
+                if (prev.prev.isMarked())
+                    continue;
+                break;
+            }
+        }
+        return prev;
+    }
+
+    private static <T> void setMark(AtomicMarkableReference<Node<T>> link) {
+        boolean[] mark = new boolean[1];
+        while (true) {
+            Node<T> p = link.get(mark);
+            if (mark[0] || link.compareAndSet(p, p, false, true))
+                break;
+        }
+    }
+
+    /**
+     * @return true if link points to node and is not marked
+     */
+    private static <T> boolean isLink(AtomicMarkableReference<Node<T>> link, Node<T> node) {
+        boolean[] mark = new boolean[1];
+        return link.get(mark) == node && !mark[0];
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    /**
+     * weakly consistent iterator: it never throws ConcurrentModificationException, it visits every element
+     * that stays in the deque during the whole iteration, and may or may not see concurrent changes
+     * @return iterator
+     */
+    public Iterator<T> iterator() {
+        return new DequeIterator();
+    }
+
+    private class DequeIterator implements Iterator<T> {
+        private Node<T> current = advance(beginMarker);
+
+        public boolean hasNext() {
+            return current != endMarker;
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            T nextItem = current.data;
+            current = advance(current);
+            return nextItem;
+        }
+
+        /**
+         * @return the first node after p that is not deleted, or endMarker
+         */
+        private Node<T> advance(Node<T> p) {
+            Node<T> q = p.next.getReference();
+            while (q != endMarker && q.next.isMarked())
+                q = q.next.getReference();
+            return q;
+        }
+    }
+
+    private static class Node<T> {
+        public final T data;
+        public final AtomicMarkableReference<Node<T>> prev = new AtomicMarkableReference<Node<T>>(null, false);
+        public final AtomicMarkableReference<Node<T>> next = new AtomicMarkableReference<Node<T>>(null, false);
+
+        public Node(T data) {
+            this.data = data;
+        }
+    }
+}
+
+/**
+ * correctness check and throughput comparison against a MyLinkedList guarded by synchronized.
+ * Every thread runs the same random mix of addFirst/addLast/pollFirst/pollLast.
+ */
+class TestLockFreeLinkedDeque {
+    private static final int OPS_PER_THREAD = 500000;
+
+    interface Deque {
+        void addFirst(Integer x);
+
+        void addLast(Integer x);
+
+        Integer pollFirst();
+
+        Integer pollLast();
+    }
+
+    static class LockFreeDeque implements Deque {
+        final LockFreeLinkedDeque<Integer> deque = new LockFreeLinkedDeque<Integer>();
+
+        public void addFirst(Integer x) {
+            deque.addFirst(x);
+        }
+
+        public void addLast(Integer x) {
+            deque.addLast(x);
+        }
+
+        public Integer pollFirst() {
+            return deque.pollFirst();
+        }
+
+        public Integer pollLast() {
+            return deque.pollLast();
+        }
+    }
+
+    static class SynchronizedDeque implements Deque {
+        final MyLinkedList<Integer> list = new MyLinkedList<Integer>();
+
+        public synchronized void addFirst(Integer x) {
+            list.add(0, x);
+        }
+
+        public synchronized void addLast(Integer x) {
+            list.add(x);
+        }
+
+        public synchronized Integer pollFirst() {
+            return list.isEmpty() ? null : list.remove(0);
+        }
+
+        public synchronized Integer pollLast() {
+            return list.isEmpty() ? null : list.remove(list.size() - 1);
+        }
+    }
+
+    /**
+     * @return elapsed milliseconds
+     */
+    static long run(final Deque deque, int threads) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        final long[] added = new long[threads];
+        final long[] polled = new long[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                java.util.Random random = new java.util.Random(id);
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    Integer x;
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            deque.addFirst(i);
+                            added[id]++;
+                            break;
+                        case 1:
+                            deque.addLast(i);
+                            added[id]++;
+                            break;
+                        case 2:
+                            x = deque.pollFirst();
+                            if (x != null)
+                                polled[id]++;
+                            break;
+                        default:
+                            x = deque.pollLast();
+                            if (x != null)
+                                polled[id]++;
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers)
+            worker.start();
+        for (Thread worker : workers)
+            worker.join();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        // drain and check that nothing was lost or duplicated
+        long remaining = 0;
+        while (deque.pollFirst() != null)
+            remaining++;
+        long totalAdded = 0, totalPolled = 0;
+        for (int t = 0; t < threads; t++) {
+            totalAdded += added[t];
+            totalPolled += polled[t];
+        }
+        if (totalAdded != totalPolled + remaining)
+            System.out.println("OOPS!! added " + totalAdded + ", polled " + (totalPolled + remaining));
+
+        return elapsed;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        // warm up both implementations
+        run(new LockFreeDeque(), maxThreads);
+        run(new SynchronizedDeque(), maxThreads);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long lockFree = run(new LockFreeDeque(), threads);
+            long sync = run(new SynchronizedDeque(), threads);
+            long ops = (long) threads * OPS_PER_THREAD;
+            System.out.println(threads + " threads: lock-free " + ops / Math.max(1, lockFree) + " ops/ms, synchronized "
+                    + ops / Math.max(1, sync) + " ops/ms");
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package chap3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: file-persistent array list, elements are written straight into a memory-mapped file.
+ * Reopening the same file gives back the list instantly, nothing needs to be deserialized.
+ *
+ * File layout: | magic(int) | element width(int) | size(long) | element 0 | element 1 | ...
+ * A single mapping is limited to 2GB, so the list holds at most (2^31 - HEADER_BYTES) / width elements.
+ */
+public class MappedArrayList<T> implements Iterable<T>, AutoCloseable {
+    private static final int MAGIC = 0x4D41504C; // "MAPL"
+    private static final int HEADER_BYTES = 16;
+    private static final int WIDTH_OFFSET = 4;
+    private static final int SIZE_OFFSET = 8;
+    private static final int CHUNK_ELEMENTS = 1 << 16; // the mapping grows by this many elements at least
+
+    private int theSize;
+    private MappedByteBuffer mapping;
+    private FileChannel channel;
+    private final ElementCodec<T> codec;
+    private final int width;
+
+    /**
+     * open the list stored in file, the file is created if it does not exist
+     * @param file backing file
+     * @param codec codec, its width must match the width stored in the header of an existing file
+     * @throws IOException if the file can not be opened or its header is not valid
+     */
+    public MappedArrayList(Path file, ElementCodec<T> codec) throws IOException {
+        this.codec = codec;
+        this.width = codec.width();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            if (channel.size() == 0) {
+                map(HEADER_BYTES + (long) CHUNK_ELEMENTS * width);
+                mapping.putInt(0, MAGIC);
+                mapping.putInt(WIDTH_OFFSET, width);
+                writeSize(0);
+            } else {
+                if (channel.size() < HEADER_BYTES)
+                    throw new IOException("file is too small to hold a list header: " + file);
+                map(channel.size());
+                if (mapping.getInt(0) != MAGIC || mapping.getInt(WIDTH_OFFSET) != width)
+                    throw new IOException("file was not written by a MappedArrayList with element width " + width + ": " + file);
+
+                // a truncated file or a damaged header must not lead to reads past the end of the mapping
+                long storedSize = mapping.getLong(SIZE_OFFSET);
+                if (storedSize < 0 || storedSize > (channel.size() - HEADER_BYTES) / width)
+                    throw new IOException("stored size " + storedSize + " does not fit in the file length "
+                            + channel.size() + ": " + file);
+                theSize = (int) storedSize;
+            }
+        } catch (IOException | RuntimeException e) {
+            // the list is not handed out, so nobody else can close the channel
+            mapping = null;
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return (checkOpen().capacity() - HEADER_BYTES) / width;
+    }
+
+    public T get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return codec.read(checkOpen(), offset(idx));
+    }
+
+    public T set(int idx, T newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        T old = codec.read(checkOpen(), offset(idx));
+        codec.write(mapping, offset(idx), newVal);
+        return old;
+    }
+
+    /**
+     * grow the file and the mapping, the file content is kept as is, so nothing is copied by hand
+     * @param newCapacity new capacity in elements
+     */
+    public void ensureCapacity(int newCapacity) {
+        if (newCapacity <= capacity())
+            return;
+
+        // grow by whole chunks to keep the number of remaps low
+        long chunks = ((long) newCapacity + CHUNK_ELEMENTS - 1) / CHUNK_ELEMENTS;
+        long bytes = HEADER_BYTES + chunks * CHUNK_ELEMENTS * width;
+        if (bytes > Integer.MAX_VALUE)
+            bytes = HEADER_BYTES + (long) newCapacity * width;
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("capacity " + newCapacity + " exceeds a single mapping");
+
+        try {
+            map(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        if (capacity() == size())
+            ensureCapacity(size() + 1);
+
+        OffHeapArrayList.moveBytes(mapping, offset(idx), offset(idx + 1), (theSize - idx) * width);
+        codec.write(mapping, offset(idx), x);
+        writeSize(theSize + 1);
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        T removedItem = codec.read(checkOpen(), offset(idx));
+
+        OffHeapArrayList.moveBytes(mapping, offset(idx + 1), offset(idx), (theSize - idx - 1) * width);
+        writeSize(theSize - 1);
+
+        return removedItem;
+    }
+
+    /**
+     * logically empty the list, the file keeps its current length
+     */
+    public void clear() {
+        checkOpen();
+        writeSize(0);
+    }
+
+    /**
+     * durability point: every change made before this call is written to the storage device
+     */
+    public void force() {
+        checkOpen().force();
+    }
+
+    /**
+     * force the content to disk and close the file, the list can not be used afterwards
+     * @throws IOException if the channel fails to close
+     */
+    public void close() throws IOException {
+        if (mapping == null)
+            return;
+
+        mapping.force();
+        mapping = null;
+        channel.close();
+    }
+
+    private void map(long bytes) throws IOException {
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        mapping.order(ByteOrder.LITTLE_ENDIAN); // fixed byte order, so the file can be moved between machines
+    }
+
+    private void writeSize(int newSize) {
+        theSize = newSize;
+        mapping.putLong(SIZE_OFFSET, newSize);
+    }
+
+    private int offset(int idx) {
+        return HEADER_BYTES + idx * width;
+    }
+
+    private MappedByteBuffer checkOpen() {
+        if (mapping == null)
+            throw new IllegalStateException("list is closed");
+
+        return mapping;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    public Iterator<T> iterator() {
+        return new MappedArrayListIterator();
+    }
+
+    private class MappedArrayListIterator implements Iterator<T> {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return codec.read(checkOpen(), offset(current++));
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            MappedArrayList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestMappedArrayList {
+    public static void main(String[] args) throws IOException {
+        Path file = java.nio.file.Files.createTempFile("mapped-list", ".bin");
+
+        try (MappedArrayList<Integer> lst = new MappedArrayList<>(file, ElementCodec.INT)) {
+            for (int i = 0; i < 10; i++)
+                lst.add(i);
+            for (int i = 20; i < 30; i++)
+                lst.add(0, i);
+            lst.remove(0);
+            lst.force();
+            System.out.println("written: " + lst);
+        }
+
+        // reopen, the content comes straight from the file
+        try (MappedArrayList<Integer> lst = new MappedArrayList<>(file, ElementCodec.INT)) {
+            System.out.println("reopened: " + lst);
+        }
+
+        // a size in the header that does not fit in the file is rejected when the file is opened
+        try (FileChannel raw = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer badSize = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            badSize.putLong(0, 1L << 40);
+            raw.write(badSize, 8);
+        }
+        try (MappedArrayList<Integer> lst = new MappedArrayList<>(file, ElementCodec.INT)) {
+            System.out.println("damaged header was accepted: size " + lst.size());
+        } catch (IOException e) {
+            System.out.println("damaged header: " + e.getMessage());
+        }
+
+        java.nio.file.Files.delete(file);
+    }
+}
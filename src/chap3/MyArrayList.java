@@ -1,7 +1,14 @@
 package chap3;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Author: baojianfeng
@@ -47,8 +54,8 @@ public class MyArrayList<T> implements Iterable<T> {
 
         T[] old = theItems;
         theItems = (T[]) new Object[newCapacity];
-        for (int i = 0; i < size(); i++)
-            theItems[i] = old[i];
+        if (old != null)
+            System.arraycopy(old, 0, theItems, 0, size());
     }
 
     public boolean add(T x) {
@@ -60,8 +67,8 @@ public class MyArrayList<T> implements Iterable<T> {
         if (theItems.length == size())
             ensureCapacity(size() * 2 + 1);
 
-        for (int i = theSize; i > idx; i--)
-            theItems[i] = theItems[i - 1];
+        // shift the tail with one block copy instead of moving element by element
+        System.arraycopy(theItems, idx, theItems, idx + 1, theSize - idx);
 
         theItems[idx] = x;
         theSize++;
@@ -70,13 +77,100 @@ public class MyArrayList<T> implements Iterable<T> {
     public T remove(int idx) {
         T removedItem = theItems[idx];
 
-        for (int i = idx; i < size() - 1; i++)
-            theItems[i] = theItems[i + 1];
-        theSize--;
+        System.arraycopy(theItems, idx + 1, theItems, idx, theSize - idx - 1);
+        theItems[--theSize] = null; // let gc reclaim the removed item
 
         return removedItem;
     }
 
+    public boolean addAll(Collection<? extends T> c) {
+        return addAll(size(), c);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean addAll(int idx, Collection<? extends T> c) {
+        return addAll(idx, (T[]) c.toArray());
+    }
+
+    public boolean addAll(T[] arr) {
+        return addAll(size(), arr);
+    }
+
+    /**
+     * insert all the elements of arr starting at position idx,
+     * the tail is shifted only once, so inserting k elements costs O(n + k)
+     * @param idx insert position
+     * @param arr elements to insert
+     * @return true if the list changed
+     */
+    public boolean addAll(int idx, T[] arr) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int k = arr.length;
+        if (k == 0)
+            return false;
+
+        if (theItems.length < theSize + k)
+            ensureCapacity(Math.max(size() * 2 + 1, theSize + k));
+
+        System.arraycopy(theItems, idx, theItems, idx + k, theSize - idx);
+        System.arraycopy(arr, 0, theItems, idx, k);
+        theSize += k;
+
+        return true;
+    }
+
+    /**
+     * remove the elements in [fromIdx, toIdx)
+     * @param fromIdx first index to remove, inclusive
+     * @param toIdx last index to remove, exclusive
+     */
+    public void removeRange(int fromIdx, int toIdx) {
+        if (fromIdx < 0 || toIdx > size() || fromIdx > toIdx)
+            throw new ArrayIndexOutOfBoundsException("Range [" + fromIdx + ", " + toIdx + "); size " + size());
+
+        System.arraycopy(theItems, toIdx, theItems, fromIdx, theSize - toIdx);
+        int newSize = theSize - (toIdx - fromIdx);
+        for (int i = newSize; i < theSize; i++)
+            theItems[i] = null;
+        theSize = newSize;
+    }
+
+    /**
+     * remove every element matching filter. The filter is called on every element before anything is
+     * written, like java.util.ArrayList.removeIf, so a filter that throws leaves the list unchanged.
+     * @param filter predicate
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        // first pass: only record the matches
+        BitSet matches = new BitSet(theSize);
+        for (int i = 0; i < theSize; i++)
+            if (filter.test(theItems[i]))
+                matches.set(i);
+
+        if (matches.isEmpty())
+            return false;
+
+        // second pass: compact the survivors to the front, every element moves at most once
+        int kept = matches.nextSetBit(0);
+        for (int i = matches.nextClearBit(kept); i < theSize; i = matches.nextClearBit(i + 1))
+            theItems[kept++] = theItems[i];
+
+        removeRange(kept, theSize);
+        return true;
+    }
+
+    /**
+     * keep only the elements that are contained in c
+     * @param c collection of elements to keep
+     * @return true if any element was removed
+     */
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(x -> !c.contains(x));
+    }
+
     public void clear() {
         theSize = 0;
         ensureCapacity(DEFAULT_CAPACITY);
@@ -97,6 +191,67 @@ public class MyArrayList<T> implements Iterable<T> {
         return new ArrayListIterator();
     }
 
+    /**
+     * spliterator that splits by index range, both halves know their exact size
+     * @return spliterator over the current elements
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArrayListSpliterator(0, size());
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class ArrayListSpliterator implements Spliterator<T> {
+        private final T[] items = theItems; // the array seen when the spliterator was created
+        private int current; // next index to visit
+        private final int fence; // one past the last index
+
+        ArrayListSpliterator(int origin, int fence) {
+            this.current = origin;
+            this.fence = fence;
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (current >= fence)
+                return false;
+
+            action.accept(items[current++]);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (int i = current; i < fence; i++)
+                action.accept(items[i]);
+            current = fence;
+        }
+
+        public Spliterator<T> trySplit() {
+            int mid = (current + fence) >>> 1;
+            if (mid <= current)
+                return null;
+
+            // hand the lower half away, keep the upper half
+            Spliterator<T> prefix = new ArrayListSpliterator(current, mid);
+            current = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return fence - current;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
     private class ArrayListIterator implements Iterator<T> {
         private int current = 0;
         private boolean okToRemove = false;
@@ -139,6 +294,32 @@ class TestArrayList {
         lst.remove(lst.size() - 1);
 
         System.out.println(lst);
+
+        // test bulk operations
+        lst.addAll(0, new Integer[]{-3, -2, -1});
+        lst.addAll(java.util.Arrays.asList(100, 101));
+        System.out.println("after addAll: " + lst);
+        lst.removeRange(3, 8);
+        System.out.println("after removeRange(3, 8): " + lst);
+        lst.removeIf(x -> x % 2 == 0);
+        System.out.println("after removeIf(even): " + lst);
+        lst.retainAll(java.util.Arrays.asList(-3, -1, 101));
+        System.out.println("after retainAll(-3, -1, 101): " + lst);
+        try {
+            lst.removeIf(x -> {
+                if (x == 101)
+                    throw new IllegalStateException("filter failed");
+                return true;
+            });
+        } catch (IllegalStateException e) {
+            System.out.println("after a throwing removeIf: " + lst);
+        }
+
+        // test parallel stream
+        MyArrayList<Integer> big = new MyArrayList<Integer>();
+        for (int i = 0; i < 100000; i++)
+            big.add(i);
+        System.out.println("parallel sum is: " + big.parallelStream().mapToLong(Integer::longValue).sum());
     }
 }
 
@@ -1,7 +1,13 @@
 package chap3;
 
 import java.util.Iterator;
+import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Author: baojianfeng
@@ -12,6 +18,18 @@ public class MyLinkedList<T> implements Iterable<T> {
     private int theSize;
     private Node<T> beginMarker;
     private Node<T> endMarker;
+    // remembered position of the last getNode() call, so that index loops don't walk from an end every time
+    private Node<T> finger;
+    private int fingerIdx;
+
+    // optional pool of unlinked nodes, chained through next; pooling is off while poolCapacity is 0
+    private static final int POOL_BATCH = 64;
+    private Node<T> freeNodes;
+    private int freeCount;
+    private int freshCount; // nodes of the last batch never used yet, they sit at the bottom of the free list
+    private int poolCapacity;
+    private long nodesAllocated;
+    private long nodesReused;
 
     public MyLinkedList() {
         clear();
@@ -23,6 +41,7 @@ public class MyLinkedList<T> implements Iterable<T> {
         beginMarker.next = endMarker;
 
         theSize = 0;
+        invalidateFinger();
     }
 
     public int size() {
@@ -39,14 +58,20 @@ public class MyLinkedList<T> implements Iterable<T> {
     }
 
     public void add(int idx, T x) {
-        addBefore(getNode(idx, 0, size()), x);
+        Node<T> p = getNode(idx, 0, size());
+        addBefore(p, x);
+
+        // the new node now sits at idx
+        finger = p.prev;
+        fingerIdx = idx;
     }
 
     public void addBefore(Node<T> p, T x) {
-        Node<T> newNode = new Node<T>(x, p.prev, p);
+        Node<T> newNode = newNode(x, p.prev, p);
         newNode.prev.next = newNode;
         p.prev = newNode;
         theSize++;
+        invalidateFinger();
     }
 
     public T get(int idx) {
@@ -63,7 +88,17 @@ public class MyLinkedList<T> implements Iterable<T> {
         if (idx < lower || idx > upper)
             throw new IndexOutOfBoundsException("getNode index: " + idx + "; size: " + size());
 
-        if (idx < size() / 2) {
+        // start from whichever of head, tail and finger is the closest
+        int fingerDistance = finger == null ? Integer.MAX_VALUE : Math.abs(idx - fingerIdx);
+        if (fingerDistance < Math.min(idx, size() - idx)) {
+            p = finger;
+            for (int i = fingerIdx; i < idx; i++) {
+                p = p.next;
+            }
+            for (int i = fingerIdx; i > idx; i--) {
+                p = p.prev;
+            }
+        } else if (idx < size() / 2) {
             p = beginMarker.next;
             for (int i = 0; i < idx; i++) {
                 p = p.next;
@@ -75,9 +110,19 @@ public class MyLinkedList<T> implements Iterable<T> {
             }
         }
 
+        finger = p;
+        fingerIdx = idx;
         return p;
     }
 
+    /**
+     * forget the remembered position, called by every operation that relinks nodes
+     */
+    private void invalidateFinger() {
+        finger = null;
+        fingerIdx = -1;
+    }
+
     public T set(int idx, T newVal) {
         Node<T> p = getNode(idx);
         T oldVal = p.data;
@@ -88,15 +133,99 @@ public class MyLinkedList<T> implements Iterable<T> {
     }
 
     public T remove(int idx) {
-        return remove(getNode(idx));
+        Node<T> p = getNode(idx);
+        Node<T> next = p.next;
+        T removedItem = remove(p);
+
+        // the node after the removed one moves up to idx
+        finger = next;
+        fingerIdx = idx;
+        return removedItem;
     }
 
     private T remove(Node<T> p) {
         p.next.prev = p.prev;
         p.prev.next = p.next;
         theSize--;
+        invalidateFinger();
+
+        T removedItem = p.data;
+        recycle(p); // p must not be used after this line
+        return removedItem;
+    }
+
+    /**
+     * turn node pooling on or off. While it is on, removed nodes are kept (up to capacity of them)
+     * and reused by the next inserts, and an empty pool is refilled in batches.
+     * @param capacity maximum number of pooled nodes, 0 turns pooling off and drops the pool
+     */
+    public void setNodePool(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("pool capacity: " + capacity);
+
+        poolCapacity = capacity;
+        while (freeCount > capacity) {
+            freeNodes = freeNodes.next;
+            freeCount--;
+        }
+        freshCount = Math.min(freshCount, freeCount);
+    }
+
+    /**
+     * @return number of nodes created with new since the list was constructed
+     */
+    public long nodesAllocated() {
+        return nodesAllocated;
+    }
+
+    /**
+     * @return number of inserts that took their node from the pool
+     */
+    public long nodesReused() {
+        return nodesReused;
+    }
+
+    private Node<T> newNode(T x, Node<T> prev, Node<T> next) {
+        if (poolCapacity == 0) {
+            nodesAllocated++;
+            return new Node<T>(x, prev, next);
+        }
+
+        if (freeNodes == null) {
+            // refill a batch at once, so the allocations are grouped together
+            int batch = Math.min(POOL_BATCH, poolCapacity);
+            for (int i = 0; i < batch; i++)
+                freeNodes = new Node<T>(null, null, freeNodes);
+            freeCount = batch;
+            freshCount = batch;
+            nodesAllocated += batch;
+        }
+
+        // recycled nodes are pushed on top of the fresh ones, so the top one is fresh only when nothing else is left
+        if (freeCount > freshCount)
+            nodesReused++;
+        else
+            freshCount--;
+
+        Node<T> p = freeNodes;
+        freeNodes = p.next;
+        freeCount--;
+
+        p.data = x;
+        p.prev = prev;
+        p.next = next;
+        return p;
+    }
+
+    private void recycle(Node<T> p) {
+        if (freeCount >= poolCapacity)
+            return;
 
-        return p.data;
+        p.data = null; // let gc reclaim the element
+        p.prev = null;
+        p.next = freeNodes;
+        freeNodes = p;
+        freeCount++;
     }
 
     public void swap(int idx1, int idx2) {
@@ -116,6 +245,7 @@ public class MyLinkedList<T> implements Iterable<T> {
         } else {
             return;
         }
+        invalidateFinger(); // p1 and p2 change places
 
         // two conditions: swap neighbourhood elements or other element pair
         if (Math.abs(idx1 - idx2) == 1) {
@@ -201,6 +331,7 @@ public class MyLinkedList<T> implements Iterable<T> {
             newHead.prev.next = endMarker;
             beginMarker.next = newHead;
             newHead.prev = beginMarker;
+            invalidateFinger();
         } else if (shiftCount > 0) {
             // move forward, use a new tail
             Node<T> newTail = getNode(shiftCount - 1);
@@ -209,6 +340,7 @@ public class MyLinkedList<T> implements Iterable<T> {
             newTail.next.prev = beginMarker;
             endMarker.prev = newTail;
             newTail.next = endMarker;
+            invalidateFinger();
         } else
             return;
     }
@@ -219,22 +351,94 @@ public class MyLinkedList<T> implements Iterable<T> {
 
         Node<T> current = getNode(idx);
 
-        for (int i = 0; i < eraseSize; i++) {
+        // stop at endMarker when eraseSize runs past the end
+        for (int i = 0; i < eraseSize && current != endMarker; i++) {
+            Node<T> next = current.next; // read before remove, the node may go back to the pool
             remove(current);
-            if (null != current.next)
-                current = current.next;
-            else
-                break;
+            current = next;
         }
     }
 
     public void insertList(int idx, MyLinkedList<T> list) {
-        for (int i = 0; i < list.size(); i++) {
-            Node<T> p = list.getNode(i);
-            add(idx + i, p.data);
+        // find the insert position once, then copy the elements in front of it
+        Node<T> p = getNode(idx, 0, size());
+        Node<T> q = list.beginMarker.next;
+        for (int i = list.size(); i > 0; i--) {
+            addBefore(p, q.data);
+            q = q.next;
         }
     }
 
+    /**
+     * move all the nodes of other into this list in front of position idx, no node is copied or allocated.
+     * other is empty afterwards.
+     * @param idx insert position, 0 <= idx <= size()
+     * @param other list to splice in, must not be this list
+     */
+    public void splice(int idx, MyLinkedList<T> other) {
+        if (other == this)
+            throw new IllegalArgumentException("can not splice a list into itself");
+
+        Node<T> p = getNode(idx, 0, size());
+        if (other.isEmpty())
+            return;
+
+        Node<T> first = other.beginMarker.next;
+        Node<T> last = other.endMarker.prev;
+
+        // relink 4 arrows: p.prev <-> first ... last <-> p
+        first.prev = p.prev;
+        p.prev.next = first;
+        last.next = p;
+        p.prev = last;
+        theSize += other.theSize;
+
+        other.beginMarker.next = other.endMarker;
+        other.endMarker.prev = other.beginMarker;
+        other.theSize = 0;
+        other.invalidateFinger();
+
+        finger = first;
+        fingerIdx = idx;
+    }
+
+    /**
+     * append all the nodes of other to the end of this list, other is empty afterwards
+     * @param other list to append
+     */
+    public void appendList(MyLinkedList<T> other) {
+        splice(size(), other);
+    }
+
+    /**
+     * cut this list in two, this list keeps [0, idx) and the rest is returned, no node is copied
+     * @param idx first position of the returned list, 0 <= idx <= size()
+     * @return new list holding the former elements [idx, size())
+     */
+    public MyLinkedList<T> splitAt(int idx) {
+        Node<T> p = getNode(idx, 0, size());
+        MyLinkedList<T> tail = new MyLinkedList<T>();
+        if (p == endMarker)
+            return tail;
+
+        Node<T> before = p.prev;
+        Node<T> last = endMarker.prev;
+
+        before.next = endMarker;
+        endMarker.prev = before;
+
+        tail.beginMarker.next = p;
+        p.prev = tail.beginMarker;
+        last.next = tail.endMarker;
+        tail.endMarker.prev = last;
+
+        tail.theSize = theSize - idx;
+        theSize = idx;
+        invalidateFinger();
+
+        return tail;
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder("[ ");
 
@@ -249,6 +453,170 @@ public class MyLinkedList<T> implements Iterable<T> {
         return new LinkedListIterator();
     }
 
+    public ListIterator<T> listIterator() {
+        return listIterator(0);
+    }
+
+    /**
+     * bidirectional iterator whose add, set and remove work on the node at the cursor in O(1)
+     * @param idx index of the element the first next() call returns, 0 <= idx <= size()
+     * @return list iterator
+     */
+    public ListIterator<T> listIterator(int idx) {
+        return new LinkedListCursor(getNode(idx, 0, size()), idx);
+    }
+
+    private class LinkedListCursor implements ListIterator<T> {
+        private Node<T> current;              // node the next call to next() returns
+        private int nextIndex;
+        private Node<T> lastReturned = null;  // node of the last next()/previous() call, null if none
+
+        LinkedListCursor(Node<T> current, int nextIndex) {
+            this.current = current;
+            this.nextIndex = nextIndex;
+        }
+
+        public boolean hasNext() {
+            return current != endMarker;
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            lastReturned = current;
+            current = current.next;
+            nextIndex++;
+            return lastReturned.data;
+        }
+
+        public boolean hasPrevious() {
+            return current.prev != beginMarker;
+        }
+
+        public T previous() {
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+
+            current = current.prev;
+            lastReturned = current;
+            nextIndex--;
+            return lastReturned.data;
+        }
+
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+
+            if (lastReturned == current)
+                current = current.next; // removed after previous(), the cursor moves on to the next node
+            else
+                nextIndex--;            // removed after next(), the node was in front of the cursor
+            MyLinkedList.this.remove(lastReturned);
+            lastReturned = null;
+        }
+
+        public void set(T x) {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+
+            lastReturned.data = x;
+        }
+
+        public void add(T x) {
+            addBefore(current, x);
+            nextIndex++;
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * spliterator that splits off a growing batch (1024, 2048, ...) of the remaining nodes into an array,
+     * as java.util.LinkedList does, so a split never walks more nodes than it hands away
+     * @return spliterator over the current elements
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new LinkedListSpliterator<T>(beginMarker.next, size());
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private static class LinkedListSpliterator<T> implements Spliterator<T> {
+        private static final int BATCH_UNIT = 1 << 10;
+        private static final int MAX_BATCH = 1 << 25;
+
+        private Node<T> current; // next node to visit
+        private int remaining;   // number of nodes left, starting from current
+        private int batch;       // size of the last batch handed away
+
+        LinkedListSpliterator(Node<T> current, int remaining) {
+            this.current = current;
+            this.remaining = remaining;
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (remaining <= 0)
+                return false;
+
+            action.accept(current.data);
+            current = current.next;
+            remaining--;
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            Node<T> p = current;
+            for (int i = 0; i < remaining; i++) {
+                action.accept(p.data);
+                p = p.next;
+            }
+            current = p;
+            remaining = 0;
+        }
+
+        public Spliterator<T> trySplit() {
+            if (remaining <= 1)
+                return null;
+
+            // copy the next batch into an array, the array part splits evenly and this keeps the tail
+            int n = Math.min(Math.min(batch + BATCH_UNIT, remaining), MAX_BATCH);
+            Object[] items = new Object[n];
+            Node<T> p = current;
+            for (int i = 0; i < n; i++) {
+                items[i] = p.data;
+                p = p.next;
+            }
+
+            current = p;
+            remaining -= n;
+            batch = n;
+            return Spliterators.spliterator(items, 0, n, ORDERED);
+        }
+
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
     private class LinkedListIterator implements Iterator<T> {
         private Node<T> current = MyLinkedList.this.beginMarker.next;
         private boolean okToRemove = false;
@@ -353,6 +721,50 @@ class TestLinkedList {
         }
         lst.insertList(lst.size() - 1, insertList);
         System.out.println("insert 5 element in the last element: " + lst);
+
+        // test splitAt and splice
+        MyLinkedList<Integer> tail = lst.splitAt(5);
+        System.out.println("splitAt(5) keeps: " + lst + ", returns: " + tail);
+        lst.splice(2, tail);
+        System.out.println("splice tail at 2: " + lst + ", tail is now: " + tail);
+
+        // test list iterator: double every even element and insert a marker after it, in one pass
+        ListIterator<Integer> cursor = lst.listIterator();
+        while (cursor.hasNext()) {
+            int x = cursor.next();
+            if (x % 2 == 0) {
+                cursor.set(x * 2);
+                cursor.add(-1);
+            }
+        }
+        System.out.println("after list iterator pass: " + lst);
+        while (cursor.hasPrevious())
+            if (cursor.previous() == -1)
+                cursor.remove();
+        System.out.println("markers removed backwards: " + lst);
+
+        // test node pool: queue-like churn reuses the removed nodes
+        MyLinkedList<Integer> queue = new MyLinkedList<Integer>();
+        queue.setNodePool(1024);
+        for (int i = 0; i < 100000; i++) {
+            queue.add(i);
+            if (queue.size() > 100)
+                queue.remove(0);
+        }
+        queue.erase(0, queue.size());
+        System.out.println("pooled queue: allocated " + queue.nodesAllocated() + ", reused " + queue.nodesReused());
+
+        // appends alone never recycle a node, so nothing counts as reused
+        MyLinkedList<Integer> appended = new MyLinkedList<Integer>();
+        appended.setNodePool(1024);
+        for (int i = 0; i < 100000; i++)
+            appended.add(i);
+        System.out.println("pooled appends: allocated " + appended.nodesAllocated() + ", reused " + appended.nodesReused());
+        if (appended.nodesReused() != 0)
+            System.out.println("pool error: appended nodes counted as reused");
+
+        // test parallel stream
+        System.out.println("parallel sum is: " + lst.parallelStream().mapToLong(Integer::longValue).sum());
     }
 }
 
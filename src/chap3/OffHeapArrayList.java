@@ -0,0 +1,300 @@
+package chap3;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: array list with the MyArrayList API whose elements live outside the java heap,
+ * every element is encoded into a fixed-width record of a direct ByteBuffer by an ElementCodec.
+ *
+ * A buffer that is given up (on growth, clear() and close()) is freed at once through
+ * sun.misc.Unsafe.invokeCleaner from the jdk.unsupported module, instead of waiting for a GC to run its
+ * cleaner. So a codec must not keep the buffer it is handed.
+ */
+public class OffHeapArrayList<T> implements Iterable<T>, AutoCloseable {
+    private int theSize;
+    private ByteBuffer segment;
+    private final ElementCodec<T> codec;
+    private final int width;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    // Unsafe.invokeCleaner(ByteBuffer), looked up by reflection so that nothing here links against sun.misc
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    public OffHeapArrayList(ElementCodec<T> codec) {
+        this.codec = codec;
+        this.width = codec.width();
+        segment = allocate(DEFAULT_CAPACITY);
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return checkOpen().capacity() / width;
+    }
+
+    public T get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        return codec.read(checkOpen(), idx * width);
+    }
+
+    public T set(int idx, T newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        T old = codec.read(checkOpen(), idx * width);
+        codec.write(segment, idx * width, newVal);
+        return old;
+    }
+
+    public void ensureCapacity(int newCapacity) {
+        ByteBuffer old = checkOpen();
+        if (newCapacity < theSize)
+            return;
+
+        segment = allocate(newCapacity);
+        // one bulk copy of the used part, like System.arraycopy in MyArrayList
+        segment.put(0, old, 0, theSize * width);
+        free(old);
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        if (capacity() == size())
+            ensureCapacity(size() * 2 + 1);
+
+        moveBytes(segment, idx * width, (idx + 1) * width, (theSize - idx) * width);
+        codec.write(segment, idx * width, x);
+        theSize++;
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        T removedItem = codec.read(checkOpen(), idx * width);
+
+        moveBytes(segment, (idx + 1) * width, idx * width, (theSize - idx - 1) * width);
+        theSize--;
+
+        return removedItem;
+    }
+
+    public void clear() {
+        ByteBuffer old = checkOpen();
+        theSize = 0;
+        segment = allocate(DEFAULT_CAPACITY);
+        free(old);
+    }
+
+    /**
+     * release the off-heap storage, the list can not be used afterwards.
+     * The native memory goes back to the os right away, not when a GC runs the buffer's cleaner.
+     */
+    public void close() {
+        if (segment == null)
+            return;
+
+        ByteBuffer old = segment;
+        segment = null;
+        theSize = 0;
+        free(old);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(Math.multiplyExact(capacity, width)).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * free the native memory of a direct buffer now, buf must not be used afterwards
+     * @param buf direct buffer created by allocate
+     */
+    private static void free(ByteBuffer buf) {
+        try {
+            INVOKE_CLEANER.invokeExact(buf);
+        } catch (Throwable e) {
+            throw new IllegalStateException("can not free the off-heap buffer", e);
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ByteBuffer checkOpen() {
+        if (segment == null)
+            throw new IllegalStateException("list is closed");
+
+        return segment;
+    }
+
+    /**
+     * memmove inside one buffer: copy len bytes from srcOff to dstOff, the two ranges may overlap
+     * @param buf buffer
+     * @param srcOff source byte offset
+     * @param dstOff destination byte offset
+     * @param len number of bytes
+     */
+    static void moveBytes(ByteBuffer buf, int srcOff, int dstOff, int len) {
+        if (len <= 0 || srcOff == dstOff)
+            return;
+
+        // one bulk copy, put copies through an intermediate location when the ranges overlap
+        buf.put(dstOff, buf, srcOff, len);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    public Iterator<T> iterator() {
+        return new OffHeapArrayListIterator();
+    }
+
+    private class OffHeapArrayListIterator implements Iterator<T> {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return codec.read(checkOpen(), width * current++);
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            OffHeapArrayList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestOffHeapArrayList {
+    // a fixed-size struct of two ints, 8 bytes per record
+    static class Point {
+        int x, y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public String toString() {
+            return "(" + x + "," + y + ")";
+        }
+    }
+
+    static final ElementCodec<Point> POINT = new ElementCodec<Point>() {
+        public int width() {
+            return 8;
+        }
+
+        public Point read(ByteBuffer buf, int offset) {
+            return new Point(buf.getInt(offset), buf.getInt(offset + 4));
+        }
+
+        public void write(ByteBuffer buf, int offset, Point p) {
+            buf.putInt(offset, p.x);
+            buf.putInt(offset + 4, p.y);
+        }
+    };
+
+    public static void main(String[] args) {
+        try (OffHeapArrayList<Long> lst = new OffHeapArrayList<>(ElementCodec.LONG)) {
+            for (long i = 0; i < 10; i++)
+                lst.add(i);
+            for (long i = 20; i < 30; i++)
+                lst.add(0, i);
+            System.out.println(lst);
+
+            lst.remove(0);
+            lst.remove(lst.size() - 1);
+            System.out.println(lst);
+        }
+
+        OffHeapArrayList<Point> points = new OffHeapArrayList<>(POINT);
+        for (int i = 0; i < 5; i++)
+            points.add(new Point(i, i * i));
+        points.add(2, new Point(-1, -1));
+        points.remove(1);
+        System.out.println(points);
+        points.close();
+        try {
+            points.ensureCapacity(100);
+            System.out.println("closed list was reopened");
+        } catch (IllegalStateException e) {
+            System.out.println("closed list: " + e.getMessage());
+        }
+
+        // growth, clear and close free the old buffers at once: no GC is needed to get the direct memory back
+        BufferPoolMXBean direct = null;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+            if (pool.getName().equals("direct"))
+                direct = pool;
+        long before = direct.getMemoryUsed();
+        OffHeapArrayList<Long> big = new OffHeapArrayList<>(ElementCodec.LONG);
+        for (long i = 0; i < 1000000; i++)
+            big.add(i);
+        long grown = direct.getMemoryUsed() - before;
+        if (grown != (long) big.capacity() * 8)
+            System.out.println("growth error: " + grown + " bytes held for a capacity of " + big.capacity());
+        big.clear();
+        long cleared = direct.getMemoryUsed() - before;
+        if (cleared != (long) big.capacity() * 8)
+            System.out.println("clear error: " + cleared + " bytes held for a capacity of " + big.capacity());
+        big.close();
+        if (direct.getMemoryUsed() != before)
+            System.out.println("close error: " + (direct.getMemoryUsed() - before) + " bytes still held");
+        System.out.println("direct bytes held: " + grown + " grown, " + cleared + " cleared, "
+                + (direct.getMemoryUsed() - before) + " closed");
+    }
+}
@@ -0,0 +1,281 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: tiered vector with the MyArrayList API. Elements live in fixed-size blocks of 2^blockShift
+ * slots under a directory, every block except the last one is full. Growing adds a new block, so the
+ * existing elements are never copied, only the directory (one reference per block) is.
+ *
+ * Each block is a small circular array with its own head, so get(idx) is two shift/mask operations.
+ * add(idx)/remove(idx) shift inside one block and then pass one element from block to block in O(1) each,
+ * which is O(B + n/B) per operation, O(sqrt(n)) when B is close to sqrt(n).
+ */
+public class TieredArrayList<T> implements Iterable<T> {
+    private int theSize;
+    private T[][] blocks;    // the directory
+    private int[] heads;     // physical position of the first element of every block
+    private int blockCount;  // number of allocated blocks
+    private final int shift;
+    private final int blockSize;
+    private final int mask;
+    private static final int DEFAULT_BLOCK_SHIFT = 10;
+    private static final int DEFAULT_DIRECTORY_CAPACITY = 4;
+
+    public TieredArrayList() {
+        this(DEFAULT_BLOCK_SHIFT);
+    }
+
+    /**
+     * @param blockShift every block holds 2^blockShift elements
+     */
+    public TieredArrayList(int blockShift) {
+        if (blockShift < 1 || blockShift > 30)
+            throw new IllegalArgumentException("blockShift " + blockShift);
+
+        this.shift = blockShift;
+        this.blockSize = 1 << blockShift;
+        this.mask = blockSize - 1;
+        clear();
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public T get(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int b = idx >>> shift;
+        return blocks[b][(heads[b] + idx) & mask];
+    }
+
+    public T set(int idx, T newVal) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int b = idx >>> shift;
+        int p = (heads[b] + idx) & mask;
+        T old = blocks[b][p];
+        blocks[b][p] = newVal;
+        return old;
+    }
+
+    /**
+     * allocate blocks until newCapacity elements fit, existing blocks are left where they are
+     * @param newCapacity new capacity
+     */
+    @SuppressWarnings("unchecked")
+    public void ensureCapacity(int newCapacity) {
+        int needed = (int) (((long) newCapacity + blockSize - 1) >>> shift);
+        if (needed <= blockCount)
+            return;
+
+        if (needed > blocks.length) {
+            // only the block references are copied here
+            int newLength = Math.max(needed, blocks.length * 2);
+            T[][] oldBlocks = blocks;
+            int[] oldHeads = heads;
+            blocks = (T[][]) new Object[newLength][];
+            heads = new int[newLength];
+            System.arraycopy(oldBlocks, 0, blocks, 0, blockCount);
+            System.arraycopy(oldHeads, 0, heads, 0, blockCount);
+        }
+
+        for (; blockCount < needed; blockCount++) {
+            blocks[blockCount] = (T[]) new Object[blockSize];
+            heads[blockCount] = 0;
+        }
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        ensureCapacity(theSize + 1);
+
+        int b = idx >>> shift;
+        int last = theSize >>> shift; // block that receives the new slot
+        if (b == last) {
+            insertInBlock(b, idx & mask, theSize & mask, x);
+        } else {
+            // block b is full: its last element is pushed out and travels to the front of the next block
+            T carry = popBack(b);
+            insertInBlock(b, idx & mask, blockSize - 1, x);
+            for (int k = b + 1; k < last; k++) {
+                T out = popBack(k);
+                pushFront(k, carry);
+                carry = out;
+            }
+            insertInBlock(last, 0, theSize & mask, carry);
+        }
+        theSize++;
+    }
+
+    public T remove(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new ArrayIndexOutOfBoundsException("Index " + idx + "; size " + size());
+
+        int b = idx >>> shift;
+        int last = (theSize - 1) >>> shift; // block that holds the last element
+        T removedItem;
+        if (b == last) {
+            removedItem = removeInBlock(b, idx & mask, ((theSize - 1) & mask) + 1);
+        } else {
+            removedItem = removeInBlock(b, idx & mask, blockSize);
+            // the hole at the end of block b is filled with the first element of the next block, and so on
+            for (int k = b; k < last; k++) {
+                T first = popFront(k + 1);
+                blocks[k][(heads[k] + blockSize - 1) & mask] = first;
+            }
+        }
+        theSize--;
+
+        return removedItem;
+    }
+
+    public void clear() {
+        theSize = 0;
+        blockCount = 0;
+        initDirectory();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initDirectory() {
+        blocks = (T[][]) new Object[DEFAULT_DIRECTORY_CAPACITY][];
+        heads = new int[DEFAULT_DIRECTORY_CAPACITY];
+    }
+
+    /**
+     * insert x at offset o of block b, which holds count elements (count < blockSize)
+     */
+    private void insertInBlock(int b, int o, int count, T x) {
+        T[] blk = blocks[b];
+        int h = heads[b];
+        if (o < count / 2) {
+            // shift the front part one slot back
+            h = (h - 1) & mask;
+            for (int i = 0; i < o; i++)
+                blk[(h + i) & mask] = blk[(h + i + 1) & mask];
+            heads[b] = h;
+        } else {
+            for (int i = count; i > o; i--)
+                blk[(h + i) & mask] = blk[(h + i - 1) & mask];
+        }
+        blk[(h + o) & mask] = x;
+    }
+
+    /**
+     * remove the element at offset o of block b, which holds count elements. The freed slot is the
+     * one right after the remaining elements, it is cleared.
+     */
+    private T removeInBlock(int b, int o, int count) {
+        T[] blk = blocks[b];
+        int h = heads[b];
+        T removedItem = blk[(h + o) & mask];
+        for (int i = o; i < count - 1; i++)
+            blk[(h + i) & mask] = blk[(h + i + 1) & mask];
+        blk[(h + count - 1) & mask] = null;
+        return removedItem;
+    }
+
+    /**
+     * remove the last element of a full block, its slot becomes free in front of the head
+     */
+    private T popBack(int b) {
+        int p = (heads[b] + blockSize - 1) & mask;
+        T out = blocks[b][p];
+        blocks[b][p] = null;
+        return out;
+    }
+
+    /**
+     * put x in front of the first element of block b, the slot before the head must be free
+     */
+    private void pushFront(int b, T x) {
+        heads[b] = (heads[b] - 1) & mask;
+        blocks[b][heads[b]] = x;
+    }
+
+    private T popFront(int b) {
+        int h = heads[b];
+        T first = blocks[b][h];
+        blocks[b][h] = null;
+        heads[b] = (h + 1) & mask;
+        return first;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return new String(sb);
+    }
+
+    public Iterator<T> iterator() {
+        return new TieredArrayListIterator();
+    }
+
+    private class TieredArrayListIterator implements Iterator<T> {
+        private int current = 0;
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return current < size();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            okToRemove = true;
+            return get(current++);
+        }
+
+        public void remove() {
+            // call next() before remove(), otherwise will throw IllegalStateException
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            TieredArrayList.this.remove(--current);
+            okToRemove = false;
+        }
+    }
+}
+
+class TestTieredArrayList {
+    public static void main(String[] args) {
+        // small blocks of 4 elements, so that the test crosses many blocks
+        TieredArrayList<Integer> lst = new TieredArrayList<>(2);
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println(lst);
+
+        lst.remove(0);
+        lst.remove(lst.size() - 1);
+        System.out.println(lst);
+
+        lst.add(7, 77);
+        lst.remove(2);
+        System.out.println(lst);
+    }
+}
@@ -0,0 +1,486 @@
+package chap3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-18
+ * Description: unrolled double-linked list with the MyLinkedList API. Every node keeps a small array of
+ * up to NODE_CAPACITY elements, so the prev/next overhead is paid once per node instead of once per element
+ * and a traversal reads consecutive slots. A full node is split in two on insert, a node that falls below
+ * half full is merged with (or refilled from) its next neighbour. So every node but the last one is at
+ * least half full.
+ */
+public class UnrolledLinkedList<T> implements Iterable<T> {
+    private static final int NODE_CAPACITY = 64;
+    private static final int MIN_FILL = NODE_CAPACITY / 2;
+
+    private int theSize;
+    private Node<T> beginMarker;
+    private Node<T> endMarker;
+    private int locOffset; // offset inside the node returned by the last locate() call
+
+    public UnrolledLinkedList() {
+        clear();
+    }
+
+    public void clear() {
+        beginMarker = new Node<T>(null, null);
+        endMarker = new Node<T>(beginMarker, null);
+        beginMarker.next = endMarker;
+
+        theSize = 0;
+    }
+
+    public int size() {
+        return theSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean add(T x) {
+        add(size(), x);
+        return true;
+    }
+
+    public void add(int idx, T x) {
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("add index: " + idx + "; size: " + size());
+
+        Node<T> p;
+        int offset;
+        if (idx == size()) {
+            // append to the last node, start a new one if it is full or missing
+            p = endMarker.prev;
+            if (p == beginMarker || p.count == NODE_CAPACITY)
+                p = insertNodeBefore(endMarker);
+            offset = p.count;
+        } else {
+            p = locate(idx);
+            offset = locOffset;
+            if (p.count == NODE_CAPACITY) {
+                // split the full node in two halves and insert into the right one
+                Node<T> right = insertNodeBefore(p.next);
+                int half = NODE_CAPACITY / 2;
+                System.arraycopy(p.items, half, right.items, 0, NODE_CAPACITY - half);
+                clearSlots(p, half, NODE_CAPACITY);
+                right.count = NODE_CAPACITY - half;
+                p.count = half;
+                if (offset > half) {
+                    p = right;
+                    offset -= half;
+                }
+            }
+        }
+
+        System.arraycopy(p.items, offset, p.items, offset + 1, p.count - offset);
+        p.items[offset] = x;
+        p.count++;
+        theSize++;
+    }
+
+    public T get(int idx) {
+        checkIndex(idx);
+        Node<T> p = locate(idx);
+        return p.items[locOffset];
+    }
+
+    public T set(int idx, T newVal) {
+        checkIndex(idx);
+        Node<T> p = locate(idx);
+        T oldVal = p.items[locOffset];
+        p.items[locOffset] = newVal;
+
+        return oldVal;
+    }
+
+    public T remove(int idx) {
+        checkIndex(idx);
+        Node<T> p = locate(idx);
+        int offset = locOffset;
+        T removedItem = p.items[offset];
+
+        System.arraycopy(p.items, offset + 1, p.items, offset, p.count - offset - 1);
+        p.items[--p.count] = null;
+        theSize--;
+        rebalance(p);
+
+        return removedItem;
+    }
+
+    public void swap(int idx1, int idx2) {
+        if ((idx1 < 0 || idx1 > size() - 1) ||
+                (idx2 < 0 || idx2 > size() - 1))
+            throw new IndexOutOfBoundsException("not able to swap");
+
+        if (idx1 == idx2)
+            return;
+
+        // the elements trade places, the nodes stay where they are
+        Node<T> p1 = locate(idx1);
+        int o1 = locOffset;
+        Node<T> p2 = locate(idx2);
+        int o2 = locOffset;
+
+        T temp = p1.items[o1];
+        p1.items[o1] = p2.items[o2];
+        p2.items[o2] = temp;
+    }
+
+    /**
+     * same semantics as MyLinkedList.shift: a positive offset moves the first offset elements to the back,
+     * a negative offset moves the last -offset elements to the front
+     * @param offset shift count
+     */
+    public void shift(int offset) {
+        if (isEmpty())
+            return;
+
+        int shiftCount = offset % size();
+        if (shiftCount < 0)
+            shiftCount += size();
+        if (shiftCount == 0)
+            return;
+
+        // cut the node chain at shiftCount and swap the two parts, only O(n / NODE_CAPACITY) links are walked
+        Node<T> newFirst = splitNodeAt(shiftCount);
+        Node<T> first = beginMarker.next;
+        Node<T> last = endMarker.prev;
+        Node<T> newLast = newFirst.prev;
+
+        beginMarker.next = newFirst;
+        newFirst.prev = beginMarker;
+        last.next = first;
+        first.prev = last;
+        newLast.next = endMarker;
+        endMarker.prev = newLast;
+
+        // the cut may have left two partial nodes, and the old last node now sits in the middle;
+        // going from the back, rebalance only ever unlinks the node itself or its next one
+        rebalance(newLast);
+        rebalance(last);
+        rebalance(beginMarker.next);
+    }
+
+    /**
+     * remove eraseSize elements starting from idx, stops at the end of the list
+     * @param idx first position to erase
+     * @param eraseSize number of elements
+     */
+    public void erase(int idx, int eraseSize) {
+        if (idx < 0 || idx > size() - 1)
+            throw new IndexOutOfBoundsException("can not erase elements");
+
+        int remaining = Math.min(eraseSize, size() - idx);
+        Node<T> p = locate(idx);
+        int offset = locOffset;
+        Node<T> start = p.prev;
+        Node<T> lastKept = null; // last node that lost elements but still has some
+
+        // drop whole runs of slots node by node
+        while (remaining > 0) {
+            int take = Math.min(remaining, p.count - offset);
+            System.arraycopy(p.items, offset + take, p.items, offset, p.count - offset - take);
+            clearSlots(p, p.count - take, p.count);
+            p.count -= take;
+            theSize -= take;
+            remaining -= take;
+
+            Node<T> next = p.next;
+            if (p.count == 0)
+                unlink(p);
+            else
+                lastKept = p;
+            p = next;
+            offset = 0;
+        }
+
+        if (lastKept != null)
+            rebalance(lastKept);
+        if (start.next != endMarker)
+            rebalance(start.next);
+        if (start != beginMarker)
+            rebalance(start);
+    }
+
+    /**
+     * copy the elements of list in front of position idx
+     * @param idx insert position, 0 <= idx <= size()
+     * @param list elements to insert
+     */
+    public void insertList(int idx, UnrolledLinkedList<T> list) {
+        if (idx < 0 || idx > size())
+            throw new IndexOutOfBoundsException("insertList index: " + idx + "; size: " + size());
+
+        // open a node boundary at idx, then chain freshly filled nodes into it
+        Node<T> p = splitNodeAt(idx);
+        Node<T> before = p.prev;
+        Node<T> fill = null;
+        for (T x : list) {
+            if (fill == null || fill.count == NODE_CAPACITY)
+                fill = insertNodeBefore(p);
+            fill.items[fill.count++] = x;
+        }
+        theSize += list.size();
+
+        // the cut and the last filled node may be partial, rebalance them from the back
+        if (p != endMarker)
+            rebalance(p);
+        if (fill != null)
+            rebalance(fill);
+        if (before != beginMarker)
+            rebalance(before);
+    }
+
+    /**
+     * find the node holding position idx, the offset inside it is left in locOffset
+     * @param idx position, 0 <= idx < size()
+     * @return node
+     */
+    private Node<T> locate(int idx) {
+        Node<T> p;
+
+        if (idx < size() / 2) {
+            p = beginMarker.next;
+            while (idx >= p.count) {
+                idx -= p.count;
+                p = p.next;
+            }
+        } else {
+            p = endMarker.prev;
+            int start = size() - p.count;
+            while (idx < start) {
+                p = p.prev;
+                start -= p.count;
+            }
+            idx -= start;
+        }
+
+        locOffset = idx;
+        return p;
+    }
+
+    /**
+     * make sure a node starts exactly at position idx
+     * @param idx position, 0 <= idx <= size()
+     * @return the node starting at idx, or endMarker if idx == size()
+     */
+    private Node<T> splitNodeAt(int idx) {
+        if (idx == size())
+            return endMarker;
+
+        Node<T> p = locate(idx);
+        int offset = locOffset;
+        if (offset == 0)
+            return p;
+
+        Node<T> right = insertNodeBefore(p.next);
+        System.arraycopy(p.items, offset, right.items, 0, p.count - offset);
+        right.count = p.count - offset;
+        clearSlots(p, offset, p.count);
+        p.count = offset;
+
+        return right;
+    }
+
+    /**
+     * merge or refill p when it has fallen under MIN_FILL elements
+     * @param p node which just lost elements
+     */
+    private void rebalance(Node<T> p) {
+        if (p.count == 0) {
+            unlink(p);
+            return;
+        }
+        if (p.count >= MIN_FILL)
+            return;
+
+        Node<T> next = p.next;
+        if (next != endMarker) {
+            if (p.count + next.count <= NODE_CAPACITY) {
+                // merge next into p
+                System.arraycopy(next.items, 0, p.items, p.count, next.count);
+                p.count += next.count;
+                unlink(next);
+            } else {
+                // borrow from next until both are about even
+                int move = (next.count - p.count) / 2;
+                System.arraycopy(next.items, 0, p.items, p.count, move);
+                System.arraycopy(next.items, move, next.items, 0, next.count - move);
+                clearSlots(next, next.count - move, next.count);
+                p.count += move;
+                next.count -= move;
+            }
+        } else if (p.prev != beginMarker && p.prev.count + p.count <= NODE_CAPACITY) {
+            // p is the last node, merge it into its prev
+            Node<T> prev = p.prev;
+            System.arraycopy(p.items, 0, prev.items, prev.count, p.count);
+            prev.count += p.count;
+            unlink(p);
+        }
+    }
+
+    private Node<T> insertNodeBefore(Node<T> p) {
+        Node<T> newNode = new Node<T>(p.prev, p);
+        newNode.prev.next = newNode;
+        p.prev = newNode;
+        return newNode;
+    }
+
+    private void unlink(Node<T> p) {
+        p.next.prev = p.prev;
+        p.prev.next = p.next;
+    }
+
+    private void clearSlots(Node<T> p, int from, int to) {
+        for (int i = from; i < to; i++)
+            p.items[i] = null;
+    }
+
+    /**
+     * number of nodes in use, for the occupancy check of the test
+     * @return node count
+     */
+    int nodeCount() {
+        int count = 0;
+        for (Node<T> p = beginMarker.next; p != endMarker; p = p.next)
+            count++;
+        return count;
+    }
+
+    private void checkIndex(int idx) {
+        if (idx < 0 || idx >= size())
+            throw new IndexOutOfBoundsException("index: " + idx + "; size: " + size());
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[ ");
+
+        for (T x : this)
+            sb.append(x + " ");
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    public Iterator<T> iterator() {
+        return new UnrolledListIterator();
+    }
+
+    private class UnrolledListIterator implements Iterator<T> {
+        private Node<T> current = beginMarker.next;
+        private int offset = 0;
+        private int index = 0; // position of the element next() returns
+        private boolean okToRemove = false;
+
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            while (offset == current.count) {
+                current = current.next;
+                offset = 0;
+            }
+            okToRemove = true;
+            index++;
+            return current.items[offset++];
+        }
+
+        public void remove() {
+            if (!okToRemove)
+                throw new IllegalStateException();
+
+            // removing may merge nodes, so find the cursor again
+            UnrolledLinkedList.this.remove(--index);
+            if (index < size()) {
+                current = locate(index);
+                offset = locOffset;
+            }
+            okToRemove = false;
+        }
+    }
+
+    private static class Node<T> {
+        public T[] items;
+        public int count;
+        public Node<T> prev;
+        public Node<T> next;
+
+        @SuppressWarnings("unchecked")
+        public Node(Node<T> prev, Node<T> next) {
+            this.items = (T[]) new Object[NODE_CAPACITY];
+            this.prev = prev;
+            this.next = next;
+        }
+    }
+}
+
+class TestUnrolledLinkedList {
+    public static void main(String[] args) {
+        UnrolledLinkedList<Integer> lst = new UnrolledLinkedList<Integer>();
+
+        for (int i = 0; i < 10; i++)
+            lst.add(i);
+        for (int i = 20; i < 30; i++)
+            lst.add(0, i);
+        System.out.println("original list is: " + lst);
+
+        lst.swap(0, 3);
+        System.out.println("swap(0, 3) is: " + lst);
+        lst.shift(4);
+        System.out.println("shift 4 positions is: " + lst);
+        lst.shift(-4);
+        System.out.println("shift -4 positions is: " + lst);
+        lst.erase(1, 2);
+        System.out.println("erase 2 elements starting from position 1: " + lst);
+
+        UnrolledLinkedList<Integer> insertList = new UnrolledLinkedList<Integer>();
+        for (int i = 0; i < 5; i++)
+            insertList.add(i);
+        lst.insertList(lst.size() - 1, insertList);
+        System.out.println("insert 5 element in the last element: " + lst);
+
+        // cross many nodes
+        UnrolledLinkedList<Integer> big = new UnrolledLinkedList<Integer>();
+        for (int i = 0; i < 1000; i++)
+            big.add(i / 2, i);
+        big.erase(100, 700);
+        long sum = 0;
+        for (int x : big)
+            sum += x;
+        System.out.println("size: " + big.size() + ", sum: " + sum);
+
+        // every node but the last is at least half full, whatever cut shift and insertList make
+        UnrolledLinkedList<Integer> cut = new UnrolledLinkedList<Integer>();
+        for (int i = 0; i < 10000; i++)
+            cut.add(i);
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++)
+            cut.shift(random.nextInt(cut.size()));
+        checkOccupancy("20000 random shifts", cut);
+
+        UnrolledLinkedList<Integer> one = new UnrolledLinkedList<Integer>();
+        one.add(-1);
+        for (int i = 0; i < 5000; i++)
+            cut.insertList(random.nextInt(cut.size() + 1), one);
+        checkOccupancy("5000 single-element insertLists", cut);
+
+        cut.erase(1000, 7000);
+        checkOccupancy("erase(1000, 7000)", cut);
+    }
+
+    private static void checkOccupancy(String what, UnrolledLinkedList<Integer> lst) {
+        int maxNodes = lst.size() / (64 / 2) + 1;
+        System.out.println("after " + what + ", size: " + lst.size() + ", nodes: " + lst.nodeCount());
+        if (lst.nodeCount() > maxNodes)
+            System.out.println("occupancy error: more than " + maxNodes + " nodes");
+    }
+}
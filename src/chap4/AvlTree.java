@@ -2,7 +2,8 @@ package chap4;
 
 // AvlTree class
 //
-// CONSTRUCTION: with no initializer
+// CONSTRUCTION: with no initializer, or from sorted items with
+// buildFromSorted( items ) or parallelBuildFromSorted( items ) in O(N)
 //
 // ******************PUBLIC OPERATIONS*********************
 // void insert( x )       --> Insert x
@@ -14,11 +15,35 @@ package chap4;
 // boolean isEmpty( )     --> Return true if empty; else false
 // void makeEmpty( )      --> Remove all items
 // void printTree( )      --> Print tree in sorted order
+// int size( )            --> Return number of items
+// int rank( x )          --> Return number of items smaller than x
+// Comparable select( k ) --> Return the item of rank k
+// int countRange( lo, hi )  --> Return number of items in [lo, hi]
+// Comparable median( )   --> Return the lower median
+// Comparable floor( x )  --> Return largest item <= x, or null
+// Comparable ceiling( x ) --> Return smallest item >= x, or null
+// Comparable lower( x )  --> Return largest item < x, or null
+// Comparable higher( x ) --> Return smallest item > x, or null
+// Iterator subSet( lo, hi ) --> Iterate items in [lo, hi) in sorted order
+// Iterator headSet( hi ) --> Iterate items < hi in sorted order
+// Iterator tailSet( lo ) --> Iterate items >= lo in sorted order
+// void join( x, other )  --> Append x and other, all greater than this
+// AvlTree split( x )     --> Keep items < x, return items >= x
+// void union( other )    --> Add the items of other, emptying other
+// void intersection( other ) --> Keep items also in other, emptying other
+// void difference( other ) --> Remove the items of other, emptying other
 // ******************ERRORS********************************
 // Throws UnderflowException as appropriate
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Implements an AVL tree.
@@ -35,13 +60,72 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         root = null;
     }
 
+    /**
+     * Build a perfectly balanced tree from items in increasing order, in O(N).
+     * @param items the items, strictly increasing.
+     * @return the new tree.
+     * @throws IllegalArgumentException if items is not strictly increasing.
+     */
+    public static <AnyType extends Comparable<? super AnyType>> AvlTree<AnyType> buildFromSorted( AnyType [ ] items )
+    {
+        AvlTree<AnyType> tree = new AvlTree<>( );
+        tree.root = buildFromSorted( items, 0, items.length );
+        return tree;
+    }
+
+    /**
+     * Build a perfectly balanced tree from items in increasing order, in O(N).
+     * The items are copied into an array first, since the shape depends on their number.
+     * @param items the items, strictly increasing.
+     * @return the new tree.
+     * @throws IllegalArgumentException if items is not strictly increasing.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    public static <AnyType extends Comparable<? super AnyType>> AvlTree<AnyType> buildFromSorted( Iterator<? extends AnyType> items )
+    {
+        ArrayList<AnyType> list = new ArrayList<>( );
+        while( items.hasNext( ) )
+            list.add( items.next( ) );
+        return buildFromSorted( (AnyType [ ]) list.toArray( new Comparable[ list.size( ) ] ) );
+    }
+
+    /**
+     * Same as buildFromSorted, but the two halves of every large
+     * subtree are built in parallel in the common ForkJoinPool.
+     * @param items the items, strictly increasing.
+     * @return the new tree.
+     * @throws IllegalArgumentException if items is not strictly increasing.
+     */
+    public static <AnyType extends Comparable<? super AnyType>> AvlTree<AnyType> parallelBuildFromSorted( AnyType [ ] items )
+    {
+        AvlTree<AnyType> tree = new AvlTree<>( );
+        tree.root = ForkJoinPool.commonPool( ).invoke( new BuildTask<>( items, 0, items.length ) );
+        return tree;
+    }
+
     /**
      * Insert into the tree; duplicates are ignored.
      * @param x the item to insert.
      */
     public void insert( AnyType x )
     {
-        root = insert( x, root );
+        int depth = 0;
+        AvlNode<AnyType> t = root;
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult == 0 )
+            {
+                Arrays.fill( path, 0, depth, null );
+                return;  // Duplicate; nothing is written
+            }
+            path[ depth ] = t;
+            pathDir[ depth++ ] = compareResult;
+            t = compareResult < 0 ? t.left : t.right;
+        }
+
+        fixPath( depth, new AvlNode<>( x, null, null ), 1 );
     }
 
     /**
@@ -50,35 +134,81 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
      */
     public void remove( AnyType x )
     {
-        root = remove( x, root );
-    }
+        int depth = 0;
+        AvlNode<AnyType> t = root;
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult == 0 )
+                break;
+            path[ depth ] = t;
+            pathDir[ depth++ ] = compareResult;
+            t = compareResult < 0 ? t.left : t.right;
+        }
+        if( t == null )
+        {
+            Arrays.fill( path, 0, depth, null );
+            return;   // Item not found; nothing is written
+        }
+
+        AvlNode<AnyType> replacement;
+        if( t.left != null && t.right != null ) // Two children
+        {
+            // Move the smallest item of the right subtree into t, then unlink its node
+            path[ depth ] = t;
+            pathDir[ depth++ ] = 1;
+            AvlNode<AnyType> min = t.right;
+            while( min.left != null )
+            {
+                path[ depth ] = min;
+                pathDir[ depth++ ] = -1;
+                min = min.left;
+            }
+            t.element = min.element;
+            replacement = min.right;
+        }
+        else
+            replacement = ( t.left != null ) ? t.left : t.right;
 
+        fixPath( depth, replacement, -1 );
+    }
 
     /**
-     * Internal method to remove from a subtree.
-     * @param x the item to remove.
-     * @param t the node that roots the subtree.
-     * @return the new root of the subtree.
+     * Hang t where the search ended, below path[ depth - 1 ], then walk back up
+     * rebalancing. Once a node keeps both its root and its height the shape above
+     * it cannot change, so the rest of the walk only adjusts sizes.
+     * @param depth the number of nodes on the path.
+     * @param t the new root of the subtree below the path.
+     * @param sizeDelta 1 for an insertion, -1 for a removal.
      */
-    private AvlNode<AnyType> remove( AnyType x, AvlNode<AnyType> t )
+    private void fixPath( int depth, AvlNode<AnyType> t, int sizeDelta )
     {
-        if( t == null )
-            return t;   // Item not found; do nothing
-
-        int compareResult = x.compareTo( t.element );
-
-        if( compareResult < 0 )
-            t.left = remove( x, t.left );
-        else if( compareResult > 0 )
-            t.right = remove( x, t.right );
-        else if( t.left != null && t.right != null ) // Two children
+        int i = depth - 1;
+        for( ; i >= 0; i-- )
         {
-            t.element = findMin( t.right ).element;
-            t.right = remove( t.element, t.right );
+            AvlNode<AnyType> p = path[ i ];
+            if( pathDir[ i ] < 0 )
+            {
+                if( p.left != t )
+                    p.left = t;
+            }
+            else if( p.right != t )
+                p.right = t;
+
+            int oldHeight = p.height;
+            t = balance( p );
+            if( t == p && t.height == oldHeight )
+                break;
         }
+
+        if( i < 0 )
+            root = t;
         else
-            t = ( t.left != null ) ? t.left : t.right;
-        return balance( t );
+            while( --i >= 0 )
+                path[ i ].size += sizeDelta;
+
+        Arrays.fill( path, 0, depth, null );   // Do not keep removed nodes reachable
     }
 
     /**
@@ -113,6 +243,242 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return contains( x, root );
     }
 
+    /**
+     * Return the number of items in the tree.
+     * @return the size of the root subtree.
+     */
+    public int size( )
+    {
+        return size( root );
+    }
+
+    /**
+     * Order statistic: count the items that are smaller than x, in O(log n).
+     * @param x the item to rank; it does not need to be in the tree.
+     * @return number of items smaller than x.
+     */
+    public int rank( AnyType x )
+    {
+        int r = 0;
+        AvlNode<AnyType> t = root;
+
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult <= 0 )
+                t = t.left;
+            else
+            {
+                r += size( t.left ) + 1;    // t and its left subtree are smaller
+                t = t.right;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Order statistic: find the item of rank k, in O(log n).
+     * @param k the rank, 0 for the smallest item.
+     * @return the item that has exactly k smaller items.
+     */
+    public AnyType select( int k )
+    {
+        if( k < 0 || k >= size( ) )
+            throw new IndexOutOfBoundsException( "select rank: " + k + "; size: " + size( ) );
+
+        AvlNode<AnyType> t = root;
+        while( true )
+        {
+            int leftSize = size( t.left );
+
+            if( k < leftSize )
+                t = t.left;
+            else if( k > leftSize )
+            {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+            else
+                return t.element;
+        }
+    }
+
+    /**
+     * Count the items in the closed range [lo, hi], in O(log n).
+     * @param lo lower bound, inclusive.
+     * @param hi upper bound, inclusive.
+     * @return number of items x with lo <= x <= hi.
+     */
+    public int countRange( AnyType lo, AnyType hi )
+    {
+        if( lo.compareTo( hi ) > 0 )
+            return 0;
+
+        int count = rank( hi ) - rank( lo );
+        if( contains( hi ) )
+            count++;
+        return count;
+    }
+
+    /**
+     * Find the median; the lower one of the two middle items for an even size.
+     * @return the median item.
+     */
+    public AnyType median( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        return select( ( size( ) - 1 ) / 2 );
+    }
+
+    /**
+     * Find the largest item that is not greater than x.
+     * @param x the item to search for.
+     * @return the floor of x, or null if every item is greater.
+     */
+    public AnyType floor( AnyType x )
+    {
+        return closest( x, true, true );
+    }
+
+    /**
+     * Find the smallest item that is not smaller than x.
+     * @param x the item to search for.
+     * @return the ceiling of x, or null if every item is smaller.
+     */
+    public AnyType ceiling( AnyType x )
+    {
+        return closest( x, false, true );
+    }
+
+    /**
+     * Find the largest item that is strictly smaller than x.
+     * @param x the item to search for.
+     * @return the item, or null if there is none.
+     */
+    public AnyType lower( AnyType x )
+    {
+        return closest( x, true, false );
+    }
+
+    /**
+     * Find the smallest item that is strictly greater than x.
+     * @param x the item to search for.
+     * @return the item, or null if there is none.
+     */
+    public AnyType higher( AnyType x )
+    {
+        return closest( x, false, false );
+    }
+
+    /**
+     * Iterate the items in [lo, hi) in sorted order, in O(log n + k).
+     * @param lo lower bound, inclusive.
+     * @param hi upper bound, exclusive.
+     * @return an iterator over the range.
+     */
+    public Iterator<AnyType> subSet( AnyType lo, AnyType hi )
+    {
+        return new RangeIterator( lo, hi );
+    }
+
+    /**
+     * Iterate the items smaller than hi in sorted order.
+     * @param hi upper bound, exclusive.
+     * @return an iterator over the range.
+     */
+    public Iterator<AnyType> headSet( AnyType hi )
+    {
+        return new RangeIterator( null, hi );
+    }
+
+    /**
+     * Iterate the items not smaller than lo in sorted order.
+     * @param lo lower bound, inclusive.
+     * @return an iterator over the range.
+     */
+    public Iterator<AnyType> tailSet( AnyType lo )
+    {
+        return new RangeIterator( lo, null );
+    }
+
+    /**
+     * Concatenate this tree, x and other in O(|height difference|).
+     * Every item of this tree must be smaller than x and x smaller than
+     * every item of other. Other is empty afterwards.
+     * @param x the middle item.
+     * @param other the tree of larger items, must not be this tree.
+     * @throws IllegalArgumentException if the items are not in order.
+     */
+    public void join( AnyType x, AvlTree<AnyType> other )
+    {
+        if( other == this )
+            throw new IllegalArgumentException( "can not join a tree with itself" );
+        if( ( root != null && findMax( root ).element.compareTo( x ) >= 0 ) ||
+                ( other.root != null && x.compareTo( findMin( other.root ).element ) >= 0 ) )
+            throw new IllegalArgumentException( "join needs this < x < other" );
+
+        root = join( root, new AvlNode<>( x ), other.root );
+        other.root = null;
+    }
+
+    /**
+     * Cut the tree in two in O(log N): this tree keeps the items
+     * smaller than x and the items not smaller than x are returned.
+     * @param x the first item of the returned tree, if present.
+     * @return a new tree holding the items >= x.
+     */
+    public AvlTree<AnyType> split( AnyType x )
+    {
+        SplitResult<AnyType> s = split( root, x, new SplitResult<>( ) );
+        AvlTree<AnyType> tail = new AvlTree<>( );
+        tail.root = s.node == null ? s.right : join( null, s.node, s.right );
+        root = s.left;
+        return tail;
+    }
+
+    /**
+     * Make this tree the union of this tree and other, in
+     * O(m log(n/m + 1)) work for sizes m <= n; the two sides of every
+     * large split are merged in parallel in the common ForkJoinPool.
+     * The nodes of other are reused, so other is empty afterwards.
+     * @param other the other tree, must not be this tree.
+     */
+    public void union( AvlTree<AnyType> other )
+    {
+        setOperation( UNION, other );
+    }
+
+    /**
+     * Keep only the items that are also in other; see union.
+     * Other is empty afterwards.
+     * @param other the other tree, must not be this tree.
+     */
+    public void intersection( AvlTree<AnyType> other )
+    {
+        setOperation( INTERSECTION, other );
+    }
+
+    /**
+     * Remove the items that are in other; see union.
+     * Other is empty afterwards.
+     * @param other the other tree, must not be this tree.
+     */
+    public void difference( AvlTree<AnyType> other )
+    {
+        setOperation( DIFFERENCE, other );
+    }
+
+    private void setOperation( int op, AvlTree<AnyType> other )
+    {
+        if( other == this )
+            throw new IllegalArgumentException( "can not combine a tree with itself" );
+
+        root = ForkJoinPool.commonPool( ).invoke( new SetOperationTask<>( this, op, root, other.root ) );
+        other.root = null;
+    }
+
     /**
      * Make the tree logically empty.
      */
@@ -167,52 +533,38 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
 //                t = doubleWithRightChild( t );
 
         t.height = Math.max( height( t.left ), height( t.right ) ) + 1; // this line of code must exist, otherwise balance process will fail -- Comment by Jeffin_20180102
+        t.size = size( t.left ) + size( t.right ) + 1;
         return t;
     }
 
+    /**
+     * Check every node's height, balance and size against its children;
+     * prints OOPS on a violation. Each check is local to one node, so the
+     * nodes are visited in any order off an explicit stack.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
     public void checkBalance( )
     {
-        checkBalance( root );
-    }
+        AvlNode<AnyType> [ ] stack = (AvlNode<AnyType> [ ]) new AvlNode[ height( root ) + 2 ];
+        int top = 0;
+        if( root != null )
+            stack[ top++ ] = root;
 
-    private int checkBalance( AvlNode<AnyType> t )
-    {
-        if( t == null )
-            return -1;
-
-        if( t != null )
+        while( top > 0 )
         {
-            int hl = checkBalance( t.left );
-            int hr = checkBalance( t.right );
+            AvlNode<AnyType> t = stack[ --top ];
             if( Math.abs( height( t.left ) - height( t.right ) ) > 1 ||
-                    height( t.left ) != hl || height( t.right ) != hr )
+                    t.height != Math.max( height( t.left ), height( t.right ) ) + 1 ||
+                    t.size != size( t.left ) + size( t.right ) + 1 )
                 System.out.println( "OOPS!!" );
-        }
-
-        return height( t );
-    }
-
-
-    /**
-     * Internal method to insert into a subtree.
-     * @param x the item to insert.
-     * @param t the node that roots the subtree.
-     * @return the new root of the subtree.
-     */
-    private AvlNode<AnyType> insert( AnyType x, AvlNode<AnyType> t )
-    {
-        if( t == null )
-            return new AvlNode<>( x, null, null );
-
-        int compareResult = x.compareTo( t.element );
 
-        if( compareResult < 0 )
-            t.left = insert( x, t.left );
-        else if( compareResult > 0 )
-            t.right = insert( x, t.right );
-        else
-            ;  // Duplicate; do nothing
-        return balance( t ); // balance every node when insert -- comment by Jeffin_20180102
+            if( top + 2 > stack.length )
+                stack = Arrays.copyOf( stack, stack.length * 2 );
+            if( t.left != null )
+                stack[ top++ ] = t.left;
+            if( t.right != null )
+                stack[ top++ ] = t.right;
+        }
     }
 
     /**
@@ -268,6 +620,296 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return false;   // No match
     }
 
+    /**
+     * Internal method for floor, ceiling, lower and higher: one descent that
+     * remembers the last node passed on the wanted side of x.
+     * @param x the item to search for.
+     * @param below true to look for items smaller than x, false for greater.
+     * @param inclusive true if an item equal to x is a match.
+     * @return the closest item, or null.
+     */
+    private AnyType closest( AnyType x, boolean below, boolean inclusive )
+    {
+        AvlNode<AnyType> t = root;
+        AnyType best = null;
+
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult == 0 && inclusive )
+                return t.element;
+
+            if( below )
+            {
+                if( compareResult > 0 )
+                {
+                    best = t.element;   // t is smaller than x; something closer may be on its right
+                    t = t.right;
+                }
+                else
+                    t = t.left;
+            }
+            else
+            {
+                if( compareResult < 0 )
+                {
+                    best = t.element;   // t is greater than x; something closer may be on its left
+                    t = t.left;
+                }
+                else
+                    t = t.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Internal method to build a balanced subtree from items[ lo .. hi-1 ].
+     * The middle item is the root, so a subtree of n nodes always has
+     * height floor(log2 n) and the heights need no bottom-up pass.
+     * Each node also checks it is greater than its predecessor in the array;
+     * together the nodes check every adjacent pair.
+     * @return the root of the subtree, or null if lo == hi.
+     */
+    private static <AnyType extends Comparable<? super AnyType>> AvlNode<AnyType>
+    buildFromSorted( AnyType [ ] items, int lo, int hi )
+    {
+        if( lo == hi )
+            return null;
+
+        int mid = ( lo + hi ) >>> 1;
+        return makeBuiltNode( items, lo, mid, hi,
+                buildFromSorted( items, lo, mid ), buildFromSorted( items, mid + 1, hi ) );
+    }
+
+    private static <AnyType extends Comparable<? super AnyType>> AvlNode<AnyType>
+    makeBuiltNode( AnyType [ ] items, int lo, int mid, int hi, AvlNode<AnyType> lt, AvlNode<AnyType> rt )
+    {
+        if( mid > 0 && items[ mid - 1 ].compareTo( items[ mid ] ) >= 0 )
+            throw new IllegalArgumentException( "items are not strictly increasing at index " + mid );
+
+        AvlNode<AnyType> t = new AvlNode<>( items[ mid ], lt, rt );
+        t.size = hi - lo;
+        t.height = 31 - Integer.numberOfLeadingZeros( hi - lo );
+        return t;
+    }
+
+    private static final int UNION = 0;
+    private static final int INTERSECTION = 1;
+    private static final int DIFFERENCE = 2;
+
+    /** Below this many items in both trees a set operation runs sequentially. */
+    private static final int PARALLEL_SET_OPERATION_THRESHOLD = 1 << 13;
+
+    /**
+     * Runs tree.setOperation( op, t1, t2 ) as a fork/join task; the tree
+     * only supplies the rebalancing helpers, its root is not touched.
+     */
+    private static class SetOperationTask<AnyType extends Comparable<? super AnyType>> extends RecursiveTask<AvlNode<AnyType>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final AvlTree<AnyType> tree;
+        private final int op;
+        private final AvlNode<AnyType> t1;
+        private final AvlNode<AnyType> t2;
+
+        SetOperationTask( AvlTree<AnyType> tree, int op, AvlNode<AnyType> t1, AvlNode<AnyType> t2 )
+        {
+            this.tree = tree;
+            this.op = op;
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+
+        protected AvlNode<AnyType> compute( )
+        {
+            return tree.setOperation( op, t1, t2 );
+        }
+    }
+
+    /**
+     * The three parts of a split; one instance is reused down a whole split.
+     */
+    private static class SplitResult<AnyType>
+    {
+        AvlNode<AnyType> left;      // Items smaller than the split item
+        AvlNode<AnyType> right;     // Items greater than the split item
+        AvlNode<AnyType> node;      // Node holding the split item, or null
+    }
+
+    /** Below this many items a subtree is built sequentially. */
+    private static final int PARALLEL_BUILD_THRESHOLD = 1 << 13;
+
+    /**
+     * Builds items[ lo .. hi-1 ] like buildFromSorted, forking the left half.
+     */
+    private static class BuildTask<AnyType extends Comparable<? super AnyType>> extends RecursiveTask<AvlNode<AnyType>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final AnyType [ ] items;
+        private final int lo;
+        private final int hi;
+
+        BuildTask( AnyType [ ] items, int lo, int hi )
+        {
+            this.items = items;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected AvlNode<AnyType> compute( )
+        {
+            if( hi - lo <= PARALLEL_BUILD_THRESHOLD )
+                return buildFromSorted( items, lo, hi );
+
+            int mid = ( lo + hi ) >>> 1;
+            BuildTask<AnyType> leftTask = new BuildTask<>( items, lo, mid );
+            leftTask.fork( );
+            AvlNode<AnyType> rt = new BuildTask<>( items, mid + 1, hi ).compute( );
+            return makeBuiltNode( items, lo, mid, hi, leftTask.join( ), rt );
+        }
+    }
+
+    /**
+     * Internal method to join tl, the node k and tr, where tl < k < tr.
+     * The shorter tree is hung at the right height on the spine of the
+     * taller one; only that spine is rebalanced. The links of k are overwritten.
+     * @return the root of the joined subtree.
+     */
+    private AvlNode<AnyType> join( AvlNode<AnyType> tl, AvlNode<AnyType> k, AvlNode<AnyType> tr )
+    {
+        if( height( tl ) > height( tr ) + ALLOWED_IMBALANCE )
+        {
+            tl.right = join( tl.right, k, tr );
+            return balance( tl );
+        }
+        if( height( tr ) > height( tl ) + ALLOWED_IMBALANCE )
+        {
+            tr.left = join( tl, k, tr.left );
+            return balance( tr );
+        }
+
+        k.left = tl;
+        k.right = tr;
+        return balance( k );
+    }
+
+    /**
+     * Internal method to join tl and tr, where tl < tr, without a middle item.
+     * @return the root of the joined subtree.
+     */
+    private AvlNode<AnyType> join2( AvlNode<AnyType> tl, AvlNode<AnyType> tr )
+    {
+        if( tl == null )
+            return tr;
+
+        SplitResult<AnyType> s = splitLast( tl, new SplitResult<>( ) );
+        return join( s.left, s.node, tr );
+    }
+
+    /**
+     * Internal method to split a subtree around x: s.left gets the items
+     * smaller than x, s.right the larger ones, and s.node the node holding
+     * x, or null. The nodes of t are reused.
+     * @return s.
+     */
+    private SplitResult<AnyType> split( AvlNode<AnyType> t, AnyType x, SplitResult<AnyType> s )
+    {
+        if( t == null )
+        {
+            s.left = s.right = s.node = null;
+            return s;
+        }
+
+        AvlNode<AnyType> lt = t.left;
+        AvlNode<AnyType> rt = t.right;
+        int compareResult = x.compareTo( t.element );
+
+        if( compareResult < 0 )
+        {
+            split( lt, x, s );
+            s.right = join( s.right, t, rt );
+        }
+        else if( compareResult > 0 )
+        {
+            split( rt, x, s );
+            s.left = join( lt, t, s.left );
+        }
+        else
+        {
+            s.left = lt;
+            s.right = rt;
+            s.node = t;
+        }
+        return s;
+    }
+
+    /**
+     * Internal method to cut off the largest node of a non-empty subtree:
+     * s.node gets that node and s.left the rest.
+     * @return s.
+     */
+    private SplitResult<AnyType> splitLast( AvlNode<AnyType> t, SplitResult<AnyType> s )
+    {
+        if( t.right == null )
+        {
+            s.left = t.left;
+            s.node = t;
+            return s;
+        }
+
+        AvlNode<AnyType> lt = t.left;
+        splitLast( t.right, s );
+        s.left = join( lt, t, s.left );
+        return s;
+    }
+
+    /**
+     * Internal method for union, intersection and difference of t1 and t2.
+     * Split t2 around the root of t1 (or t1 around the root of t2 for a
+     * difference), combine the two left and the two right parts, and join
+     * the results again.
+     * @return the root of the result; the nodes of t1 and t2 are reused.
+     */
+    private AvlNode<AnyType> setOperation( int op, AvlNode<AnyType> t1, AvlNode<AnyType> t2 )
+    {
+        if( t1 == null || t2 == null )
+            return op == UNION ? ( t1 == null ? t2 : t1 ) : op == INTERSECTION ? null : t1;
+
+        boolean parallel = size( t1 ) + size( t2 ) > PARALLEL_SET_OPERATION_THRESHOLD;  // before split reuses the nodes
+        // a difference keeps items of t1, so it splits t1 around the root of t2
+        AvlNode<AnyType> pivot = op == DIFFERENCE ? t2 : t1;
+        AvlNode<AnyType> lt = pivot.left;
+        AvlNode<AnyType> rt = pivot.right;
+        SplitResult<AnyType> s = split( op == DIFFERENCE ? t1 : t2, pivot.element, new SplitResult<>( ) );
+        AvlNode<AnyType> splitLeft = s.left;
+        AvlNode<AnyType> splitRight = s.right;
+        boolean found = s.node != null;
+
+        AvlNode<AnyType> l;
+        AvlNode<AnyType> r;
+        if( parallel )
+        {
+            ForkJoinTask<AvlNode<AnyType>> leftTask = op == DIFFERENCE ?
+                    new SetOperationTask<>( this, op, splitLeft, lt ).fork( ) :
+                    new SetOperationTask<>( this, op, lt, splitLeft ).fork( );
+            r = op == DIFFERENCE ? setOperation( op, splitRight, rt ) : setOperation( op, rt, splitRight );
+            l = leftTask.join( );
+        }
+        else
+        {
+            l = op == DIFFERENCE ? setOperation( op, splitLeft, lt ) : setOperation( op, lt, splitLeft );
+            r = op == DIFFERENCE ? setOperation( op, splitRight, rt ) : setOperation( op, rt, splitRight );
+        }
+
+        if( op == UNION || ( op == INTERSECTION && found ) )
+            return join( l, pivot, r );
+        return join2( l, r );
+    }
+
     /**
      * Internal method to print a subtree in sorted order.
      * @param t the node that roots the tree.
@@ -290,6 +932,14 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         return t == null ? -1 : t.height;
     }
 
+    /**
+     * Return the number of nodes in the subtree rooted at t, or 0, if null.
+     */
+    private int size( AvlNode<AnyType> t )
+    {
+        return t == null ? 0 : t.size;
+    }
+
     /**
      * Rotate binary tree node with left child.
      * For AVL trees, this is a single rotation for case 1.
@@ -302,6 +952,8 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         k1.right = k2;
         k2.height = Math.max( height( k2.left ), height( k2.right ) ) + 1;
         k1.height = Math.max( height( k1.left ), k2.height ) + 1;
+        k2.size = size( k2.left ) + size( k2.right ) + 1;
+        k1.size = size( k1.left ) + k2.size + 1;
         return k1; // return the new 'root'(not exactly the actual root, but the 'root' after rotation) -- Comment by Jeffin_20180102
     }
 
@@ -317,6 +969,8 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         k2.left = k1;
         k1.height = Math.max( height( k1.left ), height( k1.right ) ) + 1;
         k2.height = Math.max( height( k2.right ), k1.height ) + 1;
+        k1.size = size( k1.left ) + size( k1.right ) + 1;
+        k2.size = size( k2.right ) + k1.size + 1;
         return k2; // // return the new 'root'(not exactly the actual root, but the 'root' after rotation) -- Comment by Jeffin_20180102
     }
 
@@ -364,6 +1018,9 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         k1.height = Math.max(height(k1.left), height(k1.right)) + 1;
         k2.height = Math.max(height(k2.left), height(k2.right)) + 1;
         k3.height = Math.max(k1.height, k2.height) + 1;
+        k1.size = size(k1.left) + size(k1.right) + 1;
+        k2.size = size(k2.left) + size(k2.right) + 1;
+        k3.size = k1.size + k2.size + 1;
 
         return k3; // return new 'root'
     }
@@ -386,6 +1043,9 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         k1.height = Math.max(height(k1.left), height(k1.right)) + 1;
         k2.height = Math.max(height(k2.left), height(k2.right)) + 1;
         k3.height = Math.max(k1.height, k2.height) + 1;
+        k1.size = size(k1.left) + size(k1.right) + 1;
+        k2.size = size(k2.left) + size(k2.right) + 1;
+        k3.size = k1.size + k2.size + 1;
 
         return k3; // return new 'root'
     }
@@ -429,6 +1089,55 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         }
     }
 
+    /**
+     * In-order iterator over [lo, hi); a null bound means unbounded.
+     * The constructor descends once to the first item >= lo; after that the
+     * stack holds the nodes whose left subtree is being visited, so there is no
+     * recursion and no allocation per item. The stack is sized from the root height.
+     */
+    private class RangeIterator implements Iterator<AnyType>
+    {
+        private final AvlNode<AnyType> [ ] stack;
+        private int top = 0;
+        private final AnyType hi;
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } )
+        RangeIterator( AnyType lo, AnyType hi )
+        {
+            this.hi = hi;
+            stack = (AvlNode<AnyType> [ ]) new AvlNode[ height( root ) + 2 ];
+
+            // keep the nodes >= lo on the path; their left part is visited first
+            AvlNode<AnyType> t = root;
+            while( t != null )
+            {
+                if( lo == null || lo.compareTo( t.element ) <= 0 )
+                {
+                    stack[ top++ ] = t;
+                    t = t.left;
+                }
+                else
+                    t = t.right;
+            }
+        }
+
+        public boolean hasNext( )
+        {
+            return top > 0 && ( hi == null || stack[ top - 1 ].element.compareTo( hi ) < 0 );
+        }
+
+        public AnyType next( )
+        {
+            if( !hasNext( ) )
+                throw new NoSuchElementException( );
+
+            AvlNode<AnyType> t = stack[ --top ];
+            for( AvlNode<AnyType> p = t.right; p != null; p = p.left )
+                stack[ top++ ] = p;
+            return t.element;
+        }
+    }
+
     private static class AvlNode<AnyType>
     {
         // Constructors
@@ -443,17 +1152,28 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
             left     = lt;
             right    = rt;
             height   = 0;
+            size     = 1;
         }
 
         AnyType           element;      // The data in the node
         AvlNode<AnyType>  left;         // Left child
         AvlNode<AnyType>  right;        // Right child
         int               height;       // Height
+        int               size;         // Number of nodes in this subtree
     }
 
     /** The tree root. */
     private AvlNode<AnyType> root;
 
+    /** Longest search path: an AVL tree of height 45 already has more than 2^31 nodes. */
+    private static final int MAX_PATH = 48;
+
+    // Scratch for insert and remove, reused by every call: the nodes passed on
+    // the way down and the side taken at each (< 0 left, > 0 right); cleared after each call
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private final AvlNode<AnyType> [ ] path = (AvlNode<AnyType> [ ]) new AvlNode[ MAX_PATH ];
+    private final int [ ] pathDir = new int[ MAX_PATH ];
+
 
     // Test program
     public static void main( String [ ] args )
@@ -527,5 +1247,54 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>>
         avlTree.remove(9);
 
         avlTree.printLevels();
+
+        // Test order statistics
+        for (int i = 10; i < 20; i++)
+            avlTree.insert(i);
+        avlTree.checkBalance();
+        System.out.println("size: " + avlTree.size() + ", rank(10): " + avlTree.rank(10) + ", select(3): " + avlTree.select(3)
+                + ", countRange(5, 12): " + avlTree.countRange(5, 12) + ", median: " + avlTree.median());
+
+        // Test navigation and range iterators
+        System.out.println("floor(7): " + avlTree.floor(7) + ", ceiling(7): " + avlTree.ceiling(7)
+                + ", lower(10): " + avlTree.lower(10) + ", higher(19): " + avlTree.higher(19));
+        Iterator<Integer> range = avlTree.subSet(5, 13);
+        while (range.hasNext())
+            System.out.print(range.next() + " ");
+        System.out.println();
+
+        // Test bulk loading from sorted input
+        Integer[] sorted = new Integer[100000];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = 2 * i;
+        AvlTree<Integer> built = AvlTree.buildFromSorted(sorted);
+        AvlTree<Integer> parallelBuilt = AvlTree.parallelBuildFromSorted(sorted);
+        built.checkBalance();
+        parallelBuilt.checkBalance();
+        built.insert(5);
+        built.remove(0);
+        built.checkBalance();
+        if (parallelBuilt.size() != sorted.length || parallelBuilt.select(777) != 1554 || !built.contains(5))
+            System.out.println("buildFromSorted error!");
+
+        // Test split, join and the set operations
+        AvlTree<Integer> evens = AvlTree.buildFromSorted(sorted);
+        Integer[] multiplesOf3 = new Integer[70000];
+        for (int i = 0; i < multiplesOf3.length; i++)
+            multiplesOf3[i] = 3 * i;
+        AvlTree<Integer> both = AvlTree.buildFromSorted(multiplesOf3);
+        both.intersection(AvlTree.buildFromSorted(sorted));
+        evens.union(AvlTree.buildFromSorted(multiplesOf3));
+        AvlTree<Integer> tail = evens.split(1000);
+        evens.checkBalance();
+        tail.checkBalance();
+        Integer middle = tail.findMin();
+        tail.remove(middle);
+        evens.join(middle, tail);
+        evens.difference(AvlTree.buildFromSorted(multiplesOf3));
+        evens.checkBalance();
+        both.checkBalance();
+        if (both.size() != 33334 || both.select(1) != 6 || evens.size() != 100000 - 33334 || evens.contains(3))
+            System.out.println("set operation error!");
     }
 }
@@ -0,0 +1,1146 @@
+package chap4;
+
+// ConcurrentAvlTree class
+//
+// CONSTRUCTION: with no initializer
+//
+// ******************PUBLIC OPERATIONS*********************
+// boolean insert( x )    --> Insert x; return true if x was not present
+// boolean remove( x )    --> Remove x; return true if x was present
+// boolean contains( x )  --> Return true if x is present
+// Comparable findMin( )  --> Return smallest item
+// Comparable findMax( )  --> Return largest item
+// boolean isEmpty( )     --> Return true if empty; else false
+// void checkBalance( )   --> Check the structure; only when no thread is updating
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Thread-safe AVL tree with optimistic concurrency control, after
+ * Bronson, Casper, Chafi and Olukotun, "A Practical Concurrent Binary
+ * Search Tree" (PPoPP 2010).
+ *
+ * Every node has a version number that a rotation changes when it moves
+ * the node down. Readers take no locks: they descend hand over hand and
+ * after reading a child they check that the parent's version has not
+ * changed, otherwise they retry from the parent. Writers lock only the
+ * node they change, plus its parent to unlink it, plus the nodes taking
+ * part in a rotation; locks are always taken top-down.
+ *
+ * A removed item whose node has two children stays as a routing node
+ * (present == false) and is unlinked once it has at most one child.
+ * The rebalancing after an update is done by the updating thread; the
+ * heights are allowed to be out of date in between, so the tree is only
+ * approximately balanced while updates are running.
+ */
+public class ConcurrentAvlTree<AnyType extends Comparable<? super AnyType>>
+{
+    /**
+     * Construct the tree.
+     */
+    public ConcurrentAvlTree( )
+    {
+        rootHolder = new Node<>( null, null );
+        rootHolder.present = false;
+    }
+
+    /**
+     * Insert into the tree.
+     * @param x the item to insert.
+     * @return true if x was not present.
+     */
+    public boolean insert( AnyType x )
+    {
+        return update( x, true );
+    }
+
+    /**
+     * Remove from the tree.
+     * @param x the item to remove.
+     * @return true if x was present.
+     */
+    public boolean remove( AnyType x )
+    {
+        return update( x, false );
+    }
+
+    /**
+     * Find an item in the tree. Never takes a lock.
+     * @param x the item to search for.
+     * @return true if x is found.
+     */
+    public boolean contains( AnyType x )
+    {
+        // the version of rootHolder never changes, so this never has to retry
+        return (Boolean) attemptGet( x, rootHolder, 1, 0L );
+    }
+
+    /**
+     * Find the smallest item in the tree. Never takes a lock.
+     * @return smallest item.
+     * @throws UnderflowException if empty.
+     */
+    public AnyType findMin( )
+    {
+        return extreme( -1 );
+    }
+
+    /**
+     * Find the largest item in the tree. Never takes a lock.
+     * @return the largest item.
+     * @throws UnderflowException if empty.
+     */
+    public AnyType findMax( )
+    {
+        return extreme( 1 );
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return attemptExtremeChild( -1, 1, rootHolder, 0L ) == NONE;
+    }
+
+    /**
+     * Check heights, balance, parent links and order of the whole tree,
+     * and that no routing node is left with less than two children.
+     * Only meaningful when no other thread is updating the tree.
+     */
+    public void checkBalance( )
+    {
+        Node<AnyType> root = rootHolder.right;
+        if( root != null && root.parent != rootHolder )
+            System.out.println( "OOPS!!" );
+        checkBalance( root, null, null );
+    }
+
+    private int checkBalance( Node<AnyType> t, AnyType lo, AnyType hi )
+    {
+        if( t == null )
+            return 0;
+
+        int hl = checkBalance( t.left, lo, t.key );
+        int hr = checkBalance( t.right, t.key, hi );
+        if( Math.abs( hl - hr ) > 1 || t.height != Math.max( hl, hr ) + 1 ||
+                ( t.left != null && t.left.parent != t ) || ( t.right != null && t.right.parent != t ) ||
+                ( lo != null && t.key.compareTo( lo ) <= 0 ) || ( hi != null && t.key.compareTo( hi ) >= 0 ) ||
+                ( !t.present && ( t.left == null || t.right == null ) ) || isShrinkingOrUnlinked( t.version ) )
+            System.out.println( "OOPS!!" );
+
+        return t.height;
+    }
+
+    // Version bits: a rotation sets SHRINKING on the nodes it moves down while it
+    // relinks them, then adds VERSION_INCREMENT; an unlinked node keeps UNLINKED.
+    private static final long UNLINKED = 0x1L;
+    private static final long SHRINKING = 0x2L;
+    private static final long VERSION_INCREMENT = 0x4L;
+
+    private static final int SPIN_COUNT = 100;
+
+    // nodeCondition results; any other value is the height the node should have
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    private static final Object RETRY = new Object( );  // the traversal was invalidated
+    private static final Object NONE = new Object( );   // no present item in the subtree
+
+    private static boolean isShrinkingOrUnlinked( long version )
+    {
+        return ( version & ( SHRINKING | UNLINKED ) ) != 0;
+    }
+
+    private static boolean isUnlinked( long version )
+    {
+        return ( version & UNLINKED ) != 0;
+    }
+
+    private static long beginChange( long version )
+    {
+        return version | SHRINKING;
+    }
+
+    private static long endChange( long version )
+    {
+        return version + VERSION_INCREMENT;
+    }
+
+    /**
+     * Return the height of node t, or 0, if null.
+     */
+    private static int height( Node<?> t )
+    {
+        return t == null ? 0 : t.height;
+    }
+
+    /**
+     * Internal method to search the subtree reached from node in
+     * direction dirToC. node must still have version nodeOVL for the
+     * result to be valid.
+     * @return the answer, or RETRY if node changed.
+     */
+    private Object attemptGet( AnyType x, Node<AnyType> node, int dirToC, long nodeOVL )
+    {
+        while( true )
+        {
+            Node<AnyType> child = node.child( dirToC );
+
+            if( child == null )
+            {
+                if( node.version != nodeOVL )
+                    return RETRY;
+                return Boolean.FALSE;   // No match
+            }
+
+            int childCmp = x.compareTo( child.key );
+            if( childCmp == 0 )
+                return child.present;   // Match, unless it is a routing node
+
+            long childOVL = child.version;
+            if( isShrinkingOrUnlinked( childOVL ) )
+            {
+                child.waitUntilNotChanging( );
+                if( node.version != nodeOVL )
+                    return RETRY;
+            }
+            else if( child != node.child( dirToC ) )
+            {
+                if( node.version != nodeOVL )
+                    return RETRY;
+            }
+            else
+            {
+                // node is still valid, so the range of child is right; from now on
+                // only child has to stay valid
+                if( node.version != nodeOVL )
+                    return RETRY;
+                Object r = attemptGet( x, child, childCmp, childOVL );
+                if( r != RETRY )
+                    return r;
+            }
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private AnyType extreme( int dir )
+    {
+        Object r = attemptExtremeChild( dir, 1, rootHolder, 0L );
+        if( r == NONE )
+            throw new UnderflowException( );
+        return (AnyType) r;
+    }
+
+    /**
+     * Internal method to find the present item furthest in direction dir
+     * in the subtree of node: first on the dir side, then node itself, then
+     * the other side, which matters only if node is a routing node.
+     * @return the item, NONE, or RETRY if node changed.
+     */
+    private Object attemptExtreme( int dir, Node<AnyType> node, long nodeOVL )
+    {
+        Object r = attemptExtremeChild( dir, dir, node, nodeOVL );
+        if( r != NONE )
+            return r;
+
+        boolean present = node.present;
+        if( node.version != nodeOVL )
+            return RETRY;
+        if( present )
+            return node.key;
+
+        return attemptExtremeChild( dir, -dir, node, nodeOVL );
+    }
+
+    /**
+     * Internal method to run attemptExtreme on the child of node on side side.
+     * @return the item, NONE, or RETRY if node changed.
+     */
+    private Object attemptExtremeChild( int dir, int side, Node<AnyType> node, long nodeOVL )
+    {
+        while( true )
+        {
+            Node<AnyType> child = node.child( side );
+
+            if( child == null )
+                return node.version != nodeOVL ? RETRY : NONE;
+
+            long childOVL = child.version;
+            if( isShrinkingOrUnlinked( childOVL ) )
+                child.waitUntilNotChanging( );
+            else if( child == node.child( side ) )
+            {
+                if( node.version != nodeOVL )
+                    return RETRY;
+                Object r = attemptExtreme( dir, child, childOVL );
+                if( r != RETRY )
+                    return r;
+            }
+
+            if( node.version != nodeOVL )
+                return RETRY;
+        }
+    }
+
+    /**
+     * Internal method for insert and remove: make x present or not.
+     * @return true if that changed anything.
+     */
+    private boolean update( AnyType x, boolean newPresent )
+    {
+        // the version of rootHolder never changes, so this never has to retry
+        return (Boolean) attemptUpdateChild( x, 1, newPresent, rootHolder, 0L );
+    }
+
+    /**
+     * Internal method to update x in the subtree of node, reached from parent.
+     * @return the result, or RETRY if node changed.
+     */
+    private Object attemptUpdate( AnyType x, boolean newPresent, Node<AnyType> parent, Node<AnyType> node, long nodeOVL )
+    {
+        int compareResult = x.compareTo( node.key );
+        if( compareResult == 0 )
+            return attemptNodeUpdate( newPresent, parent, node );
+
+        return attemptUpdateChild( x, compareResult, newPresent, node, nodeOVL );
+    }
+
+    /**
+     * Internal method to update x below node in direction dirToC.
+     * @return the result, or RETRY if node changed.
+     */
+    private Object attemptUpdateChild( AnyType x, int dirToC, boolean newPresent, Node<AnyType> node, long nodeOVL )
+    {
+        while( true )
+        {
+            Node<AnyType> child = node.child( dirToC );
+            if( node.version != nodeOVL )
+                return RETRY;
+
+            if( child == null )
+            {
+                if( !newPresent )
+                    return Boolean.FALSE;   // Not found; nothing to remove
+
+                Node<AnyType> damaged;
+                synchronized( node )
+                {
+                    // with the lock held node can not be rotated any more
+                    if( node.version != nodeOVL )
+                        return RETRY;
+                    if( node.child( dirToC ) != null )
+                        continue;           // Lost a race with another insert
+
+                    node.setChild( dirToC, new Node<>( x, node ) );
+                    damaged = fixHeight_nl( node );
+                }
+                fixHeightAndRebalance( damaged );
+                return Boolean.TRUE;
+            }
+
+            long childOVL = child.version;
+            if( isShrinkingOrUnlinked( childOVL ) )
+                child.waitUntilNotChanging( );
+            else if( child == node.child( dirToC ) )
+            {
+                if( node.version != nodeOVL )
+                    return RETRY;
+                Object r = attemptUpdate( x, newPresent, node, child, childOVL );
+                if( r != RETRY )
+                    return r;
+            }
+        }
+    }
+
+    /**
+     * Internal method to update the node holding x.
+     * @return the result, or RETRY if node was unlinked or moved.
+     */
+    private Object attemptNodeUpdate( boolean newPresent, Node<AnyType> parent, Node<AnyType> node )
+    {
+        if( !newPresent )
+        {
+            if( !node.present )
+                return Boolean.FALSE;   // Already removed
+
+            if( node.left == null || node.right == null )
+            {
+                // node can be unlinked, which needs the lock of the parent too
+                Node<AnyType> damaged;
+                synchronized( parent )
+                {
+                    if( isUnlinked( parent.version ) || node.parent != parent )
+                        return RETRY;
+
+                    synchronized( node )
+                    {
+                        if( !node.present )
+                            return Boolean.FALSE;
+                        if( !attemptUnlink_nl( parent, node ) )
+                            return RETRY;
+                    }
+                    damaged = fixHeight_nl( parent );
+                }
+                fixHeightAndRebalance( damaged );
+                return Boolean.TRUE;
+            }
+        }
+
+        synchronized( node )
+        {
+            if( isUnlinked( node.version ) )
+                return RETRY;
+            if( node.present == newPresent )
+                return Boolean.FALSE;
+            if( !newPresent && ( node.left == null || node.right == null ) )
+                return RETRY;           // A child went away; unlink instead
+
+            node.present = newPresent;  // Becomes, or stops being, a routing node
+            return Boolean.TRUE;
+        }
+    }
+
+    /**
+     * Internal method to unlink node, which has at most one child.
+     * parent and node must be locked. Heights are not adjusted.
+     * @return false if node is no longer a child of parent or has two children.
+     */
+    private boolean attemptUnlink_nl( Node<AnyType> parent, Node<AnyType> node )
+    {
+        Node<AnyType> parentL = parent.left;
+        Node<AnyType> parentR = parent.right;
+        if( parentL != node && parentR != node )
+            return false;
+
+        Node<AnyType> left = node.left;
+        Node<AnyType> right = node.right;
+        if( left != null && right != null )
+            return false;
+
+        Node<AnyType> splice = left != null ? left : right;
+        if( parentL == node )
+            parent.left = splice;
+        else
+            parent.right = splice;
+        if( splice != null )
+            splice.parent = parent;
+
+        node.version = UNLINKED;
+        node.present = false;
+        return true;
+    }
+
+    /**
+     * Internal method to classify a node without locking it.
+     * @return UNLINK_REQUIRED, REBALANCE_REQUIRED, NOTHING_REQUIRED, or the new height.
+     */
+    private int nodeCondition( Node<AnyType> node )
+    {
+        Node<AnyType> nL = node.left;
+        Node<AnyType> nR = node.right;
+
+        if( ( nL == null || nR == null ) && !node.present )
+            return UNLINK_REQUIRED;
+
+        int hN = node.height;
+        int hL0 = height( nL );
+        int hR0 = height( nR );
+        int hNRepl = 1 + Math.max( hL0, hR0 );
+        int bal = hL0 - hR0;
+
+        if( bal < -1 || bal > 1 )
+            return REBALANCE_REQUIRED;
+
+        return hN != hNRepl ? hNRepl : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Internal method to repair node and then its ancestors, as long as
+     * they need it. Any thread may repair any node, so nodes are rechecked
+     * after they are locked.
+     * A rotation returns the deepest node it left damaged; the repairs from
+     * there may stop before they reach the nodes above the rotation, so
+     * after a rotation the ancestors are checked once more at the end.
+     */
+    private void fixHeightAndRebalance( Node<AnyType> node )
+    {
+        Node<AnyType> last = null;  // Last node repaired
+        boolean rotated = false;
+
+        while( true )
+        {
+            if( node == null || node.parent == null || isUnlinked( node.version ) ||
+                    nodeCondition( node ) == NOTHING_REQUIRED )
+            {
+                if( !rotated )
+                    return;
+                rotated = false;
+                node = damagedAncestor( last );
+                if( node == null )
+                    return;
+            }
+
+            last = node;
+            int condition = nodeCondition( node );
+
+            if( condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED )
+            {
+                synchronized( node )
+                {
+                    node = fixHeight_nl( node );
+                }
+            }
+            else
+            {
+                Node<AnyType> nParent = node.parent;
+                synchronized( nParent )
+                {
+                    if( !isUnlinked( nParent.version ) && node.parent == nParent )
+                    {
+                        synchronized( node )
+                        {
+                            node = rebalance_nl( nParent, node );
+                        }
+                        rotated = true;
+                    }
+                    // else retry with the new parent
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal method to find the lowest node at or above t that needs a repair.
+     * @return the node, or null.
+     */
+    private Node<AnyType> damagedAncestor( Node<AnyType> t )
+    {
+        for( ; t != null && t.parent != null; t = t.parent )
+            if( !isUnlinked( t.version ) && nodeCondition( t ) != NOTHING_REQUIRED )
+                return t;
+        return null;
+    }
+
+    /**
+     * Internal method to fix the height of a locked node.
+     * @return the next node to repair, or null.
+     */
+    private Node<AnyType> fixHeight_nl( Node<AnyType> node )
+    {
+        int c = nodeCondition( node );
+        switch( c )
+        {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return node;            // Needs the parent lock as well
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.height = c;
+                return node.parent;     // The parent may be damaged now
+        }
+    }
+
+    /**
+     * Internal method to unlink or rotate n. nParent and n must be locked.
+     * @return the next node to repair, or null.
+     */
+    private Node<AnyType> rebalance_nl( Node<AnyType> nParent, Node<AnyType> n )
+    {
+        Node<AnyType> nL = n.left;
+        Node<AnyType> nR = n.right;
+
+        if( ( nL == null || nR == null ) && !n.present )
+        {
+            if( attemptUnlink_nl( nParent, n ) )
+                return fixHeight_nl( nParent );
+            return n;
+        }
+
+        int hN = n.height;
+        int hL0 = height( nL );
+        int hR0 = height( nR );
+        int hNRepl = 1 + Math.max( hL0, hR0 );
+        int bal = hL0 - hR0;
+
+        if( bal > 1 )
+            return rebalanceToRight_nl( nParent, n, nL, hR0 );
+        else if( bal < -1 )
+            return rebalanceToLeft_nl( nParent, n, nR, hL0 );
+        else if( hNRepl != hN )
+        {
+            n.height = hNRepl;
+            return fixHeight_nl( nParent );
+        }
+        return null;
+    }
+
+    /**
+     * Internal method for a left-heavy n: rotate right, first rotating nL
+     * left if its right subtree is the taller one.
+     * @return the next node to repair, or null.
+     */
+    private Node<AnyType> rebalanceToRight_nl( Node<AnyType> nParent, Node<AnyType> n, Node<AnyType> nL, int hR0 )
+    {
+        synchronized( nL )
+        {
+            if( !nL.present && ( nL.left == null || nL.right == null ) )
+            {
+                // nL is a routing node waiting to be unlinked; do that first
+                attemptUnlink_nl( n, nL );
+                return n;
+            }
+
+            int hL = nL.height;
+            if( hL - hR0 <= 1 )
+                return n;               // Changed since n was checked; retry
+
+            Node<AnyType> nLR = nL.right;
+            int hLL0 = height( nL.left );
+            int hLR0 = height( nLR );
+            if( hLL0 >= hLR0 )
+                return rotateRight_nl( nParent, n, nL, hR0, hLL0, nLR, hLR0 );
+
+            synchronized( nLR )
+            {
+                int hLR = nLR.height;
+                if( hLL0 >= hLR )
+                    return rotateRight_nl( nParent, n, nL, hR0, hLL0, nLR, hLR );
+
+                // a double rotation only if it leaves nL in order; otherwise fix nL first
+                int hLRL = height( nLR.left );
+                int b = hLL0 - hLRL;
+                if( hLRL == 0 && !nL.present )
+                {
+                    // a double rotation would leave the routing node nL with one child;
+                    // rotate nL alone, it is unlinked next and n is balanced after that
+                    return rotateLeft_nl( n, nL, hLL0, nLR, null, 0, height( nLR.right ) );
+                }
+                if( b >= -1 && b <= 1 )
+                    return rotateRightOverLeft_nl( nParent, n, nL, hR0, hLL0, nLR, hLRL );
+            }
+            return rebalanceToLeft_nl( n, nL, nLR, hLL0 );
+        }
+    }
+
+    /**
+     * Internal method for a right-heavy n; mirror of rebalanceToRight_nl.
+     * @return the next node to repair, or null.
+     */
+    private Node<AnyType> rebalanceToLeft_nl( Node<AnyType> nParent, Node<AnyType> n, Node<AnyType> nR, int hL0 )
+    {
+        synchronized( nR )
+        {
+            if( !nR.present && ( nR.left == null || nR.right == null ) )
+            {
+                attemptUnlink_nl( n, nR );
+                return n;
+            }
+
+            int hR = nR.height;
+            if( hL0 - hR >= -1 )
+                return n;               // Changed since n was checked; retry
+
+            Node<AnyType> nRL = nR.left;
+            int hRL0 = height( nRL );
+            int hRR0 = height( nR.right );
+            if( hRR0 >= hRL0 )
+                return rotateLeft_nl( nParent, n, hL0, nR, nRL, hRL0, hRR0 );
+
+            synchronized( nRL )
+            {
+                int hRL = nRL.height;
+                if( hRR0 >= hRL )
+                    return rotateLeft_nl( nParent, n, hL0, nR, nRL, hRL, hRR0 );
+
+                int hRLR = height( nRL.right );
+                int b = hRR0 - hRLR;
+                if( hRLR == 0 && !nR.present )
+                    return rotateRight_nl( n, nR, nRL, hRR0, height( nRL.left ), null, 0 );
+                if( b >= -1 && b <= 1 )
+                    return rotateLeftOverRight_nl( nParent, n, hL0, nR, nRL, hRR0, hRLR );
+            }
+            return rebalanceToRight_nl( n, nR, nRL, hRR0 );
+        }
+    }
+
+    /**
+     * Rotate n with its left child nL. n moves down, so it is marked
+     * SHRINKING while the links change.
+     * @return the deepest node still damaged, or null.
+     */
+    private Node<AnyType> rotateRight_nl( Node<AnyType> nParent, Node<AnyType> n, Node<AnyType> nL,
+                                          int hR, int hLL, Node<AnyType> nLR, int hLR )
+    {
+        long nodeOVL = n.version;
+        Node<AnyType> nPL = nParent.left;
+
+        n.version = beginChange( nodeOVL );
+
+        n.left = nLR;
+        if( nLR != null )
+            nLR.parent = n;
+
+        nL.right = n;
+        n.parent = nL;
+
+        if( nPL == n )
+            nParent.left = nL;
+        else
+            nParent.right = nL;
+        nL.parent = nParent;
+
+        int hNRepl = 1 + Math.max( hLR, hR );
+        n.height = hNRepl;
+        nL.height = 1 + Math.max( hLL, hNRepl );
+
+        n.version = endChange( nodeOVL );
+
+        // n, nL and nParent may be damaged, fix what the held locks allow
+        int balN = hLR - hR;
+        if( balN < -1 || balN > 1 )
+            return n;
+        if( ( nLR == null || hR == 0 ) && !n.present )
+            return n;
+
+        int balL = hLL - hNRepl;
+        if( balL < -1 || balL > 1 )
+            return nL;
+        if( hLL == 0 && !nL.present )
+            return nL;
+
+        return fixHeight_nl( nParent );
+    }
+
+    /**
+     * Rotate n with its right child nR; mirror of rotateRight_nl.
+     * @return the deepest node still damaged, or null.
+     */
+    private Node<AnyType> rotateLeft_nl( Node<AnyType> nParent, Node<AnyType> n, int hL,
+                                         Node<AnyType> nR, Node<AnyType> nRL, int hRL, int hRR )
+    {
+        long nodeOVL = n.version;
+        Node<AnyType> nPL = nParent.left;
+
+        n.version = beginChange( nodeOVL );
+
+        n.right = nRL;
+        if( nRL != null )
+            nRL.parent = n;
+
+        nR.left = n;
+        n.parent = nR;
+
+        if( nPL == n )
+            nParent.left = nR;
+        else
+            nParent.right = nR;
+        nR.parent = nParent;
+
+        int hNRepl = 1 + Math.max( hL, hRL );
+        n.height = hNRepl;
+        nR.height = 1 + Math.max( hNRepl, hRR );
+
+        n.version = endChange( nodeOVL );
+
+        int balN = hRL - hL;
+        if( balN < -1 || balN > 1 )
+            return n;
+        if( ( nRL == null || hL == 0 ) && !n.present )
+            return n;
+
+        int balR = hRR - hNRepl;
+        if( balR < -1 || balR > 1 )
+            return nR;
+        if( hRR == 0 && !nR.present )
+            return nR;
+
+        return fixHeight_nl( nParent );
+    }
+
+    /**
+     * Double rotation: nLR, the right child of nL, becomes the root of the
+     * subtree; n and nL both move down.
+     * @return the deepest node still damaged, or null.
+     */
+    private Node<AnyType> rotateRightOverLeft_nl( Node<AnyType> nParent, Node<AnyType> n, Node<AnyType> nL,
+                                                  int hR, int hLL, Node<AnyType> nLR, int hLRL )
+    {
+        long nodeOVL = n.version;
+        long leftOVL = nL.version;
+
+        Node<AnyType> nPL = nParent.left;
+        Node<AnyType> nLRL = nLR.left;
+        Node<AnyType> nLRR = nLR.right;
+        int hLRR = height( nLRR );
+
+        n.version = beginChange( nodeOVL );
+        nL.version = beginChange( leftOVL );
+
+        n.left = nLRR;
+        if( nLRR != null )
+            nLRR.parent = n;
+
+        nL.right = nLRL;
+        if( nLRL != null )
+            nLRL.parent = nL;
+
+        nLR.left = nL;
+        nL.parent = nLR;
+        nLR.right = n;
+        n.parent = nLR;
+
+        if( nPL == n )
+            nParent.left = nLR;
+        else
+            nParent.right = nLR;
+        nLR.parent = nParent;
+
+        int hNRepl = 1 + Math.max( hLRR, hR );
+        n.height = hNRepl;
+        int hLRepl = 1 + Math.max( hLL, hLRL );
+        nL.height = hLRepl;
+        nLR.height = 1 + Math.max( hLRepl, hNRepl );
+
+        n.version = endChange( nodeOVL );
+        nL.version = endChange( leftOVL );
+
+        int balN = hLRR - hR;
+        if( balN < -1 || balN > 1 )
+            return n;
+        if( ( nLRR == null || hR == 0 ) && !n.present )
+            return n;
+
+        int balLR = hLRepl - hNRepl;
+        if( balLR < -1 || balLR > 1 )
+            return nLR;
+
+        return fixHeight_nl( nParent );
+    }
+
+    /**
+     * Double rotation; mirror of rotateRightOverLeft_nl.
+     * @return the deepest node still damaged, or null.
+     */
+    private Node<AnyType> rotateLeftOverRight_nl( Node<AnyType> nParent, Node<AnyType> n, int hL,
+                                                  Node<AnyType> nR, Node<AnyType> nRL, int hRR, int hRLR )
+    {
+        long nodeOVL = n.version;
+        long rightOVL = nR.version;
+
+        Node<AnyType> nPL = nParent.left;
+        Node<AnyType> nRLL = nRL.left;
+        Node<AnyType> nRLR = nRL.right;
+        int hRLL = height( nRLL );
+
+        n.version = beginChange( nodeOVL );
+        nR.version = beginChange( rightOVL );
+
+        n.right = nRLL;
+        if( nRLL != null )
+            nRLL.parent = n;
+
+        nR.left = nRLR;
+        if( nRLR != null )
+            nRLR.parent = nR;
+
+        nRL.right = nR;
+        nR.parent = nRL;
+        nRL.left = n;
+        n.parent = nRL;
+
+        if( nPL == n )
+            nParent.left = nRL;
+        else
+            nParent.right = nRL;
+        nRL.parent = nParent;
+
+        int hNRepl = 1 + Math.max( hL, hRLL );
+        n.height = hNRepl;
+        int hRRepl = 1 + Math.max( hRLR, hRR );
+        nR.height = hRRepl;
+        nRL.height = 1 + Math.max( hNRepl, hRRepl );
+
+        n.version = endChange( nodeOVL );
+        nR.version = endChange( rightOVL );
+
+        int balN = hRLL - hL;
+        if( balN < -1 || balN > 1 )
+            return n;
+        if( ( nRLL == null || hL == 0 ) && !n.present )
+            return n;
+
+        int balRL = hRRepl - hNRepl;
+        if( balRL < -1 || balRL > 1 )
+            return nRL;
+
+        return fixHeight_nl( nParent );
+    }
+
+    private static final class Node<AnyType>
+    {
+        Node( AnyType theElement, Node<AnyType> p )
+        {
+            key     = theElement;
+            parent  = p;
+            height  = 1;
+            present = true;
+        }
+
+        Node<AnyType> child( int dir )
+        {
+            return dir < 0 ? left : right;
+        }
+
+        void setChild( int dir, Node<AnyType> node )
+        {
+            if( dir < 0 )
+                left = node;
+            else
+                right = node;
+        }
+
+        /**
+         * Wait for a rotation that moves this node down to finish. Spins
+         * instead of taking the lock, so readers never block on a writer.
+         */
+        void waitUntilNotChanging( )
+        {
+            long v = version;
+            if( ( v & SHRINKING ) != 0 )
+            {
+                for( int tries = 0; version == v; tries++ )
+                {
+                    if( tries < SPIN_COUNT )
+                        Thread.onSpinWait( );
+                    else
+                        Thread.yield( );
+                }
+            }
+        }
+
+        final AnyType             key;          // The data in the node
+        volatile boolean          present;      // False for a routing node
+        volatile int              height;       // Height, 1 for a leaf
+        volatile long             version;      // Changed by rotations that move the node down
+        volatile Node<AnyType>    parent;       // Parent, only changed with its lock held
+        volatile Node<AnyType>    left;         // Left child
+        volatile Node<AnyType>    right;        // Right child
+    }
+
+    /** Sentinel whose right child is the root; it is never rotated. */
+    private final Node<AnyType> rootHolder;
+
+
+    // Test program
+    public static void main( String [ ] args ) throws InterruptedException
+    {
+        ConcurrentAvlTree<Integer> t = new ConcurrentAvlTree<>( );
+        final int NUMS = 100000;  // must be even
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            t.insert( i );
+        for( int i = 1; i < NUMS; i+= 2 )
+            t.remove( i );
+        t.checkBalance( );
+
+        if( t.findMin( ) != 2 || t.findMax( ) != NUMS - 2 )
+            System.out.println( "FindMin or FindMax error!" );
+
+        for( int i = 2; i < NUMS; i+=2 )
+            if( !t.contains( i ) )
+                System.out.println( "Find error1!" );
+
+        for( int i = 1; i < NUMS; i+=2 )
+            if( t.contains( i ) )
+                System.out.println( "Find error2!" );
+
+        // every thread owns the keys k with k % THREADS == id, so the final
+        // contents are known even though the threads run at the same time
+        final int THREADS = 4;
+        final ConcurrentAvlTree<Integer> shared = new ConcurrentAvlTree<>( );
+        final boolean [ ] expected = new boolean[ NUMS ];
+        Thread [ ] workers = new Thread[ THREADS ];
+        for( int id = 0; id < THREADS; id++ )
+        {
+            final int me = id;
+            workers[ id ] = new Thread( ( ) -> {
+                Random random = new Random( me );
+                for( int i = 0; i < 200000; i++ )
+                {
+                    int k = random.nextInt( NUMS / THREADS ) * THREADS + me;
+                    if( random.nextBoolean( ) )
+                    {
+                        if( shared.insert( k ) == expected[ k ] )
+                            System.out.println( "Insert result error!" );
+                        expected[ k ] = true;
+                    }
+                    else
+                    {
+                        if( shared.remove( k ) != expected[ k ] )
+                            System.out.println( "Remove result error!" );
+                        expected[ k ] = false;
+                    }
+                    shared.contains( random.nextInt( NUMS ) );
+                }
+            } );
+        }
+        for( Thread worker : workers )
+            worker.start( );
+        for( Thread worker : workers )
+            worker.join( );
+
+        shared.checkBalance( );
+        for( int k = 0; k < NUMS; k++ )
+            if( shared.contains( k ) != expected[ k ] )
+                System.out.println( "Concurrent update error!" );
+    }
+}
+
+/**
+ * Throughput comparison of ConcurrentAvlTree against an AvlTree guarded
+ * by one lock and against ConcurrentSkipListSet, with 90% and 50% of the
+ * operations being contains and the rest split evenly between insert and remove.
+ */
+class TestConcurrentAvlTree
+{
+    private static final int KEY_RANGE = 1 << 17;
+    private static final int OPS_PER_THREAD = 1000000;
+
+    interface IntSet
+    {
+        boolean contains( Integer x );
+
+        void insert( Integer x );
+
+        void remove( Integer x );
+    }
+
+    static class OptimisticSet implements IntSet
+    {
+        final ConcurrentAvlTree<Integer> tree = new ConcurrentAvlTree<>( );
+
+        public boolean contains( Integer x )
+        {
+            return tree.contains( x );
+        }
+
+        public void insert( Integer x )
+        {
+            tree.insert( x );
+        }
+
+        public void remove( Integer x )
+        {
+            tree.remove( x );
+        }
+    }
+
+    static class LockedSet implements IntSet
+    {
+        final AvlTree<Integer> tree = new AvlTree<>( );
+
+        public synchronized boolean contains( Integer x )
+        {
+            return tree.contains( x );
+        }
+
+        public synchronized void insert( Integer x )
+        {
+            tree.insert( x );
+        }
+
+        public synchronized void remove( Integer x )
+        {
+            tree.remove( x );
+        }
+    }
+
+    static class SkipListSet implements IntSet
+    {
+        final ConcurrentSkipListSet<Integer> set = new ConcurrentSkipListSet<>( );
+
+        public boolean contains( Integer x )
+        {
+            return set.contains( x );
+        }
+
+        public void insert( Integer x )
+        {
+            set.add( x );
+        }
+
+        public void remove( Integer x )
+        {
+            set.remove( x );
+        }
+    }
+
+    /**
+     * @return operations per millisecond
+     */
+    static long run( final IntSet set, int threads, final int readPercent ) throws InterruptedException
+    {
+        Random prefill = new Random( 42 );
+        for( int i = 0; i < KEY_RANGE / 2; i++ )
+            set.insert( prefill.nextInt( KEY_RANGE ) );
+
+        Thread [ ] workers = new Thread[ threads ];
+        for( int t = 0; t < threads; t++ )
+        {
+            final int id = t;
+            workers[ t ] = new Thread( ( ) -> {
+                Random random = new Random( id );
+                for( int i = 0; i < OPS_PER_THREAD; i++ )
+                {
+                    int op = random.nextInt( 100 );
+                    Integer k = random.nextInt( KEY_RANGE );
+                    if( op < readPercent )
+                        set.contains( k );
+                    else if( ( op & 1 ) == 0 )
+                        set.insert( k );
+                    else
+                        set.remove( k );
+                }
+            } );
+        }
+
+        long start = System.nanoTime( );
+        for( Thread worker : workers )
+            worker.start( );
+        for( Thread worker : workers )
+            worker.join( );
+        long elapsed = ( System.nanoTime( ) - start ) / 1000000;
+
+        return (long) threads * OPS_PER_THREAD / Math.max( 1, elapsed );
+    }
+
+    public static void main( String [ ] args ) throws InterruptedException
+    {
+        int maxThreads = Runtime.getRuntime( ).availableProcessors( );
+
+        // warm up all three implementations
+        for( int readPercent : new int [ ] { 90, 50 } )
+        {
+            run( new OptimisticSet( ), maxThreads, readPercent );
+            run( new LockedSet( ), maxThreads, readPercent );
+            run( new SkipListSet( ), maxThreads, readPercent );
+        }
+
+        for( int readPercent : new int [ ] { 90, 50 } )
+            for( int threads = 1; threads <= maxThreads; threads *= 2 )
+                System.out.println( readPercent + "% reads, " + threads + " threads: optimistic "
+                        + run( new OptimisticSet( ), threads, readPercent ) + " ops/ms, locked "
+                        + run( new LockedSet( ), threads, readPercent ) + " ops/ms, skip list "
+                        + run( new SkipListSet( ), threads, readPercent ) + " ops/ms" );
+    }
+}
@@ -0,0 +1,429 @@
+package chap4;
+
+// LongAvlTree class
+//
+// CONSTRUCTION: with no initializer
+//
+// ******************PUBLIC OPERATIONS*********************
+// void insert( x )       --> Insert x
+// void remove( x )       --> Remove x
+// boolean contains( x )  --> Return true if x is present
+// long findMin( )        --> Return smallest item
+// long findMax( )        --> Return largest item
+// boolean isEmpty( )     --> Return true if empty; else false
+// void makeEmpty( )      --> Remove all items
+// void printTree( )      --> Print tree in sorted order
+// OfLong iterator( )     --> Iterate the keys in sorted order
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * AvlTree specialized for long keys.
+ * Keys are stored as primitive longs and compared with < and >,
+ * so nothing is boxed and no compareTo call is made on the way down.
+ */
+public class LongAvlTree
+{
+    /**
+     * Construct the tree.
+     */
+    public LongAvlTree( )
+    {
+        root = null;
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored.
+     * @param x the item to insert.
+     */
+    public void insert( long x )
+    {
+        root = insert( x, root );
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * @param x the item to remove.
+     */
+    public void remove( long x )
+    {
+        root = remove( x, root );
+    }
+
+    /**
+     * Internal method to remove from a subtree.
+     * @param x the item to remove.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private LongAvlNode remove( long x, LongAvlNode t )
+    {
+        if( t == null )
+            return t;   // Item not found; do nothing
+
+        if( x < t.element )
+            t.left = remove( x, t.left );
+        else if( x > t.element )
+            t.right = remove( x, t.right );
+        else if( t.left != null && t.right != null ) // Two children
+        {
+            t.element = findMin( t.right ).element;
+            t.right = remove( t.element, t.right );
+        }
+        else
+            t = ( t.left != null ) ? t.left : t.right;
+        return balance( t );
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item.
+     * @throws UnderflowException if empty.
+     */
+    public long findMin( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        return findMin( root ).element;
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return the largest item.
+     * @throws UnderflowException if empty.
+     */
+    public long findMax( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        return findMax( root ).element;
+    }
+
+    /**
+     * Find an item in the tree.
+     * @param x the item to search for.
+     * @return true if x is found.
+     */
+    public boolean contains( long x )
+    {
+        LongAvlNode t = root;
+        while( t != null )
+        {
+            if( x < t.element )
+                t = t.left;
+            else if( x > t.element )
+                t = t.right;
+            else
+                return true;    // Match
+        }
+
+        return false;   // No match
+    }
+
+    /**
+     * Make the tree logically empty.
+     */
+    public void makeEmpty( )
+    {
+        root = null;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return root == null;
+    }
+
+    /**
+     * Print the tree contents in sorted order.
+     */
+    public void printTree( )
+    {
+        if( isEmpty( ) )
+            System.out.println( "Empty tree" );
+        else
+            printTree( root );
+    }
+
+    /**
+     * Iterate the keys in sorted order; use nextLong( ) to avoid boxing.
+     * @return an iterator over the keys.
+     */
+    public PrimitiveIterator.OfLong iterator( )
+    {
+        return new LongAvlTreeIterator( );
+    }
+
+    private static final int ALLOWED_IMBALANCE = 1;
+
+    // Assume t is either balanced or within one of being balanced
+    private LongAvlNode balance( LongAvlNode t )
+    {
+        if( t == null )
+            return t;
+
+        if( height( t.left ) - height( t.right ) > ALLOWED_IMBALANCE )
+            if( height( t.left.left ) >= height( t.left.right ) )
+                t = rotateWithLeftChild( t );
+            else
+                t = doubleWithLeftChild( t );
+        else
+        if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
+            if( height( t.right.right ) >= height( t.right.left ) )
+                t = rotateWithRightChild( t );
+            else
+                t = doubleWithRightChild( t );
+
+        t.height = Math.max( height( t.left ), height( t.right ) ) + 1;
+        return t;
+    }
+
+    public void checkBalance( )
+    {
+        checkBalance( root );
+    }
+
+    private int checkBalance( LongAvlNode t )
+    {
+        if( t == null )
+            return -1;
+
+        int hl = checkBalance( t.left );
+        int hr = checkBalance( t.right );
+        if( Math.abs( height( t.left ) - height( t.right ) ) > 1 ||
+                height( t.left ) != hl || height( t.right ) != hr )
+            System.out.println( "OOPS!!" );
+
+        return height( t );
+    }
+
+    /**
+     * Internal method to insert into a subtree.
+     * @param x the item to insert.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private LongAvlNode insert( long x, LongAvlNode t )
+    {
+        if( t == null )
+            return new LongAvlNode( x, null, null );
+
+        if( x < t.element )
+            t.left = insert( x, t.left );
+        else if( x > t.element )
+            t.right = insert( x, t.right );
+        else
+            ;  // Duplicate; do nothing
+        return balance( t );
+    }
+
+    /**
+     * Internal method to find the smallest item in a subtree.
+     * @param t the node that roots the tree.
+     * @return node containing the smallest item.
+     */
+    private LongAvlNode findMin( LongAvlNode t )
+    {
+        if( t == null )
+            return t;
+
+        while( t.left != null )
+            t = t.left;
+        return t;
+    }
+
+    /**
+     * Internal method to find the largest item in a subtree.
+     * @param t the node that roots the tree.
+     * @return node containing the largest item.
+     */
+    private LongAvlNode findMax( LongAvlNode t )
+    {
+        if( t == null )
+            return t;
+
+        while( t.right != null )
+            t = t.right;
+        return t;
+    }
+
+    /**
+     * Internal method to print a subtree in sorted order.
+     * @param t the node that roots the tree.
+     */
+    private void printTree( LongAvlNode t )
+    {
+        if( t != null )
+        {
+            printTree( t.left );
+            System.out.println( t.element );
+            printTree( t.right );
+        }
+    }
+
+    /**
+     * Return the height of node t, or -1, if null.
+     */
+    private int height( LongAvlNode t )
+    {
+        return t == null ? -1 : t.height;
+    }
+
+    /**
+     * Rotate binary tree node with left child.
+     * For AVL trees, this is a single rotation for case 1.
+     * Update heights, then return new root.
+     */
+    private LongAvlNode rotateWithLeftChild( LongAvlNode k2 )
+    {
+        LongAvlNode k1 = k2.left;
+        k2.left = k1.right;
+        k1.right = k2;
+        k2.height = Math.max( height( k2.left ), height( k2.right ) ) + 1;
+        k1.height = Math.max( height( k1.left ), k2.height ) + 1;
+        return k1;
+    }
+
+    /**
+     * Rotate binary tree node with right child.
+     * For AVL trees, this is a single rotation for case 4.
+     * Update heights, then return new root.
+     */
+    private LongAvlNode rotateWithRightChild( LongAvlNode k1 )
+    {
+        LongAvlNode k2 = k1.right;
+        k1.right = k2.left;
+        k2.left = k1;
+        k1.height = Math.max( height( k1.left ), height( k1.right ) ) + 1;
+        k2.height = Math.max( height( k2.right ), k1.height ) + 1;
+        return k2;
+    }
+
+    /**
+     * Double rotate binary tree node: first left child
+     * with its right child; then node k3 with new left child.
+     * For AVL trees, this is a double rotation for case 2.
+     * Update heights, then return new root.
+     */
+    private LongAvlNode doubleWithLeftChild( LongAvlNode k3 )
+    {
+        k3.left = rotateWithRightChild( k3.left );
+        return rotateWithLeftChild( k3 );
+    }
+
+    /**
+     * Double rotate binary tree node: first right child
+     * with its left child; then node k1 with new right child.
+     * For AVL trees, this is a double rotation for case 3.
+     * Update heights, then return new root.
+     */
+    private LongAvlNode doubleWithRightChild( LongAvlNode k1 )
+    {
+        k1.right = rotateWithLeftChild( k1.right );
+        return rotateWithRightChild( k1 );
+    }
+
+    /**
+     * In-order iterator with an explicit stack of the nodes whose
+     * left subtree is being visited; the stack is sized from the root height.
+     */
+    private class LongAvlTreeIterator implements PrimitiveIterator.OfLong
+    {
+        private final LongAvlNode [ ] stack = new LongAvlNode[ height( root ) + 2 ];
+        private int top = 0;
+
+        LongAvlTreeIterator( )
+        {
+            pushLeft( root );
+        }
+
+        public boolean hasNext( )
+        {
+            return top > 0;
+        }
+
+        public long nextLong( )
+        {
+            if( !hasNext( ) )
+                throw new NoSuchElementException( );
+
+            LongAvlNode t = stack[ --top ];
+            pushLeft( t.right );
+            return t.element;
+        }
+
+        private void pushLeft( LongAvlNode t )
+        {
+            for( ; t != null; t = t.left )
+                stack[ top++ ] = t;
+        }
+    }
+
+    private static class LongAvlNode
+    {
+        // Constructors
+        LongAvlNode( long theElement )
+        {
+            this( theElement, null, null );
+        }
+
+        LongAvlNode( long theElement, LongAvlNode lt, LongAvlNode rt )
+        {
+            element  = theElement;
+            left     = lt;
+            right    = rt;
+            height   = 0;
+        }
+
+        long              element;      // The data in the node
+        LongAvlNode       left;         // Left child
+        LongAvlNode       right;        // Right child
+        int               height;       // Height
+    }
+
+    /** The tree root. */
+    private LongAvlNode root;
+
+
+    // Test program
+    public static void main( String [ ] args )
+    {
+        LongAvlTree t = new LongAvlTree( );
+        final int NUMS = 100000;  // must be even
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            t.insert( i );
+        for( int i = 1; i < NUMS; i+= 2 )
+            t.remove( i );
+        t.checkBalance( );
+
+        if( t.findMin( ) != 2 || t.findMax( ) != NUMS - 2 )
+            System.out.println( "FindMin or FindMax error!" );
+
+        for( int i = 2; i < NUMS; i+=2 )
+            if( !t.contains( i ) )
+                System.out.println( "Find error1!" );
+
+        for( int i = 1; i < NUMS; i+=2 )
+            if( t.contains( i ) )
+                System.out.println( "Find error2!" );
+
+        long expected = 2;
+        PrimitiveIterator.OfLong itr = t.iterator( );
+        while( itr.hasNext( ) )
+        {
+            if( itr.nextLong( ) != expected )
+                System.out.println( "Iterator error!" );
+            expected += 2;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package chap4;
+
+// PersistentAvlTree class
+//
+// CONSTRUCTION: with no initializer
+//
+// ******************PUBLIC OPERATIONS*********************
+// void insert( x )       --> Insert x
+// void remove( x )       --> Remove x
+// boolean contains( x )  --> Return true if x is present
+// Comparable findMin( )  --> Return smallest item
+// Comparable findMax( )  --> Return largest item
+// boolean isEmpty( )     --> Return true if empty; else false
+// int size( )            --> Return number of items
+// void makeEmpty( )      --> Remove all items
+// void printTree( )      --> Print tree in sorted order
+// Iterator iterator( )   --> Iterate the items in sorted order
+// PersistentAvlTree snapshot( ) --> Return an independent copy in O(1)
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * AVL tree with immutable nodes. An update copies only the nodes on the
+ * path to the changed item, rotations included, and shares every other
+ * subtree with the previous version. So snapshot( ) is O(1): the copy just
+ * points at the current root, and later updates of either tree do not
+ * affect the other one.
+ *
+ * One thread may update the tree while any number of threads read it
+ * without locks. The root is volatile and a new version becomes visible
+ * with a single write, after all of its nodes are built; a reader works
+ * on the root it read first, so every operation and every iterator sees one
+ * consistent version. Concurrent updates need outside synchronization.
+ */
+public class PersistentAvlTree<AnyType extends Comparable<? super AnyType>> implements Iterable<AnyType>
+{
+    /**
+     * Construct the tree.
+     */
+    public PersistentAvlTree( )
+    {
+        root = null;
+    }
+
+    private PersistentAvlTree( AvlNode<AnyType> root )
+    {
+        this.root = root;
+    }
+
+    /**
+     * Return an independent tree holding the current items, in O(1).
+     * @return the snapshot.
+     */
+    public PersistentAvlTree<AnyType> snapshot( )
+    {
+        return new PersistentAvlTree<>( root );
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored.
+     * @param x the item to insert.
+     */
+    public void insert( AnyType x )
+    {
+        AvlNode<AnyType> t = root;
+        AvlNode<AnyType> newRoot = insert( x, t );
+        if( newRoot != t )
+            root = newRoot;
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * @param x the item to remove.
+     */
+    public void remove( AnyType x )
+    {
+        AvlNode<AnyType> t = root;
+        AvlNode<AnyType> newRoot = remove( x, t );
+        if( newRoot != t )
+            root = newRoot;
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item.
+     * @throws UnderflowException if empty.
+     */
+    public AnyType findMin( )
+    {
+        AvlNode<AnyType> t = root;
+        if( t == null )
+            throw new UnderflowException( );
+        return findMin( t ).element;
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return the largest item.
+     * @throws UnderflowException if empty.
+     */
+    public AnyType findMax( )
+    {
+        AvlNode<AnyType> t = root;
+        if( t == null )
+            throw new UnderflowException( );
+        return findMax( t ).element;
+    }
+
+    /**
+     * Find an item in the tree.
+     * @param x the item to search for.
+     * @return true if x is found.
+     */
+    public boolean contains( AnyType x )
+    {
+        AvlNode<AnyType> t = root;
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else if( compareResult > 0 )
+                t = t.right;
+            else
+                return true;    // Match
+        }
+
+        return false;   // No match
+    }
+
+    /**
+     * Return the number of items in the tree.
+     */
+    public int size( )
+    {
+        return size( root );
+    }
+
+    /**
+     * Make the tree logically empty. Snapshots keep their items.
+     */
+    public void makeEmpty( )
+    {
+        root = null;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return root == null;
+    }
+
+    /**
+     * Print the tree contents in sorted order.
+     */
+    public void printTree( )
+    {
+        AvlNode<AnyType> t = root;
+        if( t == null )
+            System.out.println( "Empty tree" );
+        else
+            printTree( t );
+    }
+
+    /**
+     * Iterate the items in sorted order. The iterator walks the version
+     * that was current when it was created, whatever happens afterwards.
+     * @return an iterator over the items.
+     */
+    public Iterator<AnyType> iterator( )
+    {
+        return new PersistentAvlTreeIterator( root );
+    }
+
+    private static final int ALLOWED_IMBALANCE = 1;
+
+    /**
+     * Internal method to make a new node with left subtree l and right subtree r,
+     * which must be within one of being balanced; rotations make new nodes as well.
+     * @return the new root of the subtree.
+     */
+    private AvlNode<AnyType> balance( AnyType x, AvlNode<AnyType> l, AvlNode<AnyType> r )
+    {
+        if( height( l ) - height( r ) > ALLOWED_IMBALANCE )
+        {
+            if( height( l.left ) >= height( l.right ) )     // single rotation with left child
+                return new AvlNode<>( l.element, l.left, new AvlNode<>( x, l.right, r ) );
+
+            AvlNode<AnyType> lr = l.right;                  // double rotation with left child
+            return new AvlNode<>( lr.element, new AvlNode<>( l.element, l.left, lr.left ),
+                    new AvlNode<>( x, lr.right, r ) );
+        }
+        if( height( r ) - height( l ) > ALLOWED_IMBALANCE )
+        {
+            if( height( r.right ) >= height( r.left ) )     // single rotation with right child
+                return new AvlNode<>( r.element, new AvlNode<>( x, l, r.left ), r.right );
+
+            AvlNode<AnyType> rl = r.left;                   // double rotation with right child
+            return new AvlNode<>( rl.element, new AvlNode<>( x, l, rl.left ),
+                    new AvlNode<>( r.element, rl.right, r.right ) );
+        }
+
+        return new AvlNode<>( x, l, r );
+    }
+
+    public void checkBalance( )
+    {
+        checkBalance( root );
+    }
+
+    private int checkBalance( AvlNode<AnyType> t )
+    {
+        if( t == null )
+            return -1;
+
+        int hl = checkBalance( t.left );
+        int hr = checkBalance( t.right );
+        if( Math.abs( height( t.left ) - height( t.right ) ) > 1 ||
+                height( t.left ) != hl || height( t.right ) != hr ||
+                t.size != size( t.left ) + size( t.right ) + 1 )
+            System.out.println( "OOPS!!" );
+
+        return height( t );
+    }
+
+    /**
+     * Internal method to insert into a subtree.
+     * @param x the item to insert.
+     * @param t the node that roots the subtree.
+     * @return the root of the new subtree, or t if x was already there.
+     */
+    private AvlNode<AnyType> insert( AnyType x, AvlNode<AnyType> t )
+    {
+        if( t == null )
+            return new AvlNode<>( x, null, null );
+
+        int compareResult = x.compareTo( t.element );
+
+        if( compareResult < 0 )
+        {
+            AvlNode<AnyType> l = insert( x, t.left );
+            return l == t.left ? t : balance( t.element, l, t.right );
+        }
+        else if( compareResult > 0 )
+        {
+            AvlNode<AnyType> r = insert( x, t.right );
+            return r == t.right ? t : balance( t.element, t.left, r );
+        }
+        else
+            return t;  // Duplicate; share the whole subtree
+    }
+
+    /**
+     * Internal method to remove from a subtree.
+     * @param x the item to remove.
+     * @param t the node that roots the subtree.
+     * @return the root of the new subtree, or t if x was not found.
+     */
+    private AvlNode<AnyType> remove( AnyType x, AvlNode<AnyType> t )
+    {
+        if( t == null )
+            return t;   // Item not found; do nothing
+
+        int compareResult = x.compareTo( t.element );
+
+        if( compareResult < 0 )
+        {
+            AvlNode<AnyType> l = remove( x, t.left );
+            return l == t.left ? t : balance( t.element, l, t.right );
+        }
+        else if( compareResult > 0 )
+        {
+            AvlNode<AnyType> r = remove( x, t.right );
+            return r == t.right ? t : balance( t.element, t.left, r );
+        }
+        else if( t.left != null && t.right != null ) // Two children
+            return balance( findMin( t.right ).element, t.left, removeMin( t.right ) );
+        else
+            return ( t.left != null ) ? t.left : t.right;
+    }
+
+    /**
+     * Internal method to remove the smallest item of a non-empty subtree.
+     * @return the root of the new subtree.
+     */
+    private AvlNode<AnyType> removeMin( AvlNode<AnyType> t )
+    {
+        if( t.left == null )
+            return t.right;
+        return balance( t.element, removeMin( t.left ), t.right );
+    }
+
+    /**
+     * Internal method to find the smallest item in a subtree.
+     * @param t the node that roots the tree.
+     * @return node containing the smallest item.
+     */
+    private AvlNode<AnyType> findMin( AvlNode<AnyType> t )
+    {
+        while( t.left != null )
+            t = t.left;
+        return t;
+    }
+
+    /**
+     * Internal method to find the largest item in a subtree.
+     * @param t the node that roots the tree.
+     * @return node containing the largest item.
+     */
+    private AvlNode<AnyType> findMax( AvlNode<AnyType> t )
+    {
+        while( t.right != null )
+            t = t.right;
+        return t;
+    }
+
+    /**
+     * Internal method to print a subtree in sorted order.
+     * @param t the node that roots the tree.
+     */
+    private void printTree( AvlNode<AnyType> t )
+    {
+        if( t != null )
+        {
+            printTree( t.left );
+            System.out.println( t.element );
+            printTree( t.right );
+        }
+    }
+
+    /**
+     * Return the height of node t, or -1, if null.
+     */
+    private static int height( AvlNode<?> t )
+    {
+        return t == null ? -1 : t.height;
+    }
+
+    /**
+     * Return the number of nodes in subtree t, or 0, if null.
+     */
+    private static int size( AvlNode<?> t )
+    {
+        return t == null ? 0 : t.size;
+    }
+
+    /**
+     * In-order iterator over one version, with an explicit stack of the nodes
+     * whose left subtree is being visited; the stack is sized from the root height.
+     */
+    private class PersistentAvlTreeIterator implements Iterator<AnyType>
+    {
+        private final AvlNode<AnyType> [ ] stack;
+        private int top = 0;
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } )
+        PersistentAvlTreeIterator( AvlNode<AnyType> t )
+        {
+            stack = (AvlNode<AnyType> [ ]) new AvlNode[ height( t ) + 2 ];
+            pushLeft( t );
+        }
+
+        public boolean hasNext( )
+        {
+            return top > 0;
+        }
+
+        public AnyType next( )
+        {
+            if( !hasNext( ) )
+                throw new NoSuchElementException( );
+
+            AvlNode<AnyType> t = stack[ --top ];
+            pushLeft( t.right );
+            return t.element;
+        }
+
+        private void pushLeft( AvlNode<AnyType> t )
+        {
+            for( ; t != null; t = t.left )
+                stack[ top++ ] = t;
+        }
+    }
+
+    // Immutable node; all fields are final, so a node is safely published with the root
+    private static final class AvlNode<AnyType>
+    {
+        AvlNode( AnyType theElement, AvlNode<AnyType> lt, AvlNode<AnyType> rt )
+        {
+            element  = theElement;
+            left     = lt;
+            right    = rt;
+            height   = Math.max( height( lt ), height( rt ) ) + 1;
+            size     = size( lt ) + size( rt ) + 1;
+        }
+
+        final AnyType           element;      // The data in the node
+        final AvlNode<AnyType>  left;         // Left child
+        final AvlNode<AnyType>  right;        // Right child
+        final int               height;       // Height
+        final int               size;         // Number of nodes in this subtree
+    }
+
+    /** The tree root; written by the updating thread only. */
+    private volatile AvlNode<AnyType> root;
+
+
+    // Test program
+    public static void main( String [ ] args ) throws InterruptedException
+    {
+        PersistentAvlTree<Integer> t = new PersistentAvlTree<>( );
+        final int NUMS = 100000;  // must be even
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            t.insert( i );
+        PersistentAvlTree<Integer> all = t.snapshot( );
+        for( int i = 1; i < NUMS; i+= 2 )
+            t.remove( i );
+        t.checkBalance( );
+        all.checkBalance( );
+
+        if( t.findMin( ) != 2 || t.findMax( ) != NUMS - 2 )
+            System.out.println( "FindMin or FindMax error!" );
+
+        for( int i = 2; i < NUMS; i+=2 )
+            if( !t.contains( i ) )
+                System.out.println( "Find error1!" );
+
+        for( int i = 1; i < NUMS; i+=2 )
+            if( t.contains( i ) || !all.contains( i ) )
+                System.out.println( "Find error2!" );
+
+        if( t.size( ) != NUMS / 2 - 1 || all.size( ) != NUMS - 1 )
+            System.out.println( "Snapshot error!" );
+
+        // a reader takes snapshots while the writer keeps going; every snapshot
+        // must be a sorted tree whose size matches its contents
+        final PersistentAvlTree<Integer> shared = new PersistentAvlTree<>( );
+        Thread reader = new Thread( ( ) -> {
+            for( int round = 0; round < 200; round++ )
+            {
+                PersistentAvlTree<Integer> view = shared.snapshot( );
+                int count = 0;
+                Integer previous = null;
+                for( Integer x : view )
+                {
+                    if( previous != null && previous >= x )
+                        System.out.println( "Snapshot order error!" );
+                    previous = x;
+                    count++;
+                }
+                if( count != view.size( ) )
+                    System.out.println( "Snapshot size error!" );
+            }
+        } );
+        reader.start( );
+        for( int i = 0; i < 1000000; i++ )
+        {
+            shared.insert( i % 5000 );
+            shared.remove( ( i * 7 ) % 5000 );
+        }
+        reader.join( );
+        shared.checkBalance( );
+    }
+}
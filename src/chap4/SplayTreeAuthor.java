@@ -1,5 +1,7 @@
 package chap4;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -19,6 +21,53 @@ public class SplayTreeAuthor<AnyType extends Comparable<? super  AnyType>> {
         root = nullNode;
     }
 
+    /**
+     * Build a perfectly balanced tree from items in increasing order, in O(N).
+     * Inserting them one at a time would leave a path.
+     * @param items the items, strictly increasing.
+     * @return the new tree.
+     * @throws IllegalArgumentException if items is not strictly increasing.
+     */
+    public static <AnyType extends Comparable<? super AnyType>> SplayTreeAuthor<AnyType> buildFromSorted( AnyType [ ] items )
+    {
+        SplayTreeAuthor<AnyType> tree = new SplayTreeAuthor<>( );
+        tree.root = tree.buildFromSorted( items, 0, items.length );
+        return tree;
+    }
+
+    /**
+     * Build a perfectly balanced tree from items in increasing order, in O(N).
+     * The items are copied into an array first.
+     * @param items the items, strictly increasing.
+     * @return the new tree.
+     * @throws IllegalArgumentException if items is not strictly increasing.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    public static <AnyType extends Comparable<? super AnyType>> SplayTreeAuthor<AnyType> buildFromSorted( Iterator<? extends AnyType> items )
+    {
+        ArrayList<AnyType> list = new ArrayList<>( );
+        while( items.hasNext( ) )
+            list.add( items.next( ) );
+        return buildFromSorted( (AnyType [ ]) list.toArray( new Comparable[ list.size( ) ] ) );
+    }
+
+    /**
+     * Internal method to build a balanced subtree from items[ lo .. hi-1 ];
+     * the middle item is the root.
+     * @return the root of the subtree, or nullNode if lo == hi.
+     */
+    private BinaryNode<AnyType> buildFromSorted( AnyType [ ] items, int lo, int hi )
+    {
+        if( lo == hi )
+            return nullNode;
+
+        int mid = ( lo + hi ) >>> 1;
+        if( mid > 0 && items[ mid - 1 ].compareTo( items[ mid ] ) >= 0 )
+            throw new IllegalArgumentException( "items are not strictly increasing at index " + mid );
+
+        return new BinaryNode<>( items[ mid ], buildFromSorted( items, lo, mid ), buildFromSorted( items, mid + 1, hi ) );
+    }
+
     private BinaryNode<AnyType> newNode = null;  // Used between different inserts
 
     /**
@@ -334,6 +383,10 @@ public class SplayTreeAuthor<AnyType extends Comparable<? super  AnyType>> {
 //    }
 
     public static void main(String[] args) {
+        SplayTreeAuthor<Integer> built = SplayTreeAuthor.buildFromSorted(new Integer[]{1, 2, 3, 4, 5, 6, 7});
+        built.remove(4);
+        System.out.println("min: " + built.findMin() + ", max: " + built.findMax() + ", contains(4): " + built.contains(4));
+
         SplayTreeAuthor<Integer> splayTree = new SplayTreeAuthor<>();
 
         splayTree.insert(100);
@@ -1,5 +1,7 @@
 package chap4;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -15,6 +17,33 @@ public class SplayTreeBottomUp<T extends Comparable<? super T>> {
         root = null;
     }
 
+    /**
+     * build a perfectly balanced tree from sorted values in O(n), inserting them one by one
+     * would build a path instead
+     * @param items values, strictly increasing
+     * @param <T> generic type
+     * @return splay tree
+     */
+    public static <T extends Comparable<? super T>> SplayTreeBottomUp<T> buildFromSorted(T[] items) {
+        SplayTreeBottomUp<T> tree = new SplayTreeBottomUp<>();
+        tree.root = tree.build(items, 0, items.length, null);
+        return tree;
+    }
+
+    /**
+     * build a perfectly balanced tree from sorted values in O(n), the values are copied to an array first
+     * @param items values, strictly increasing
+     * @param <T> generic type
+     * @return splay tree
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T extends Comparable<? super T>> SplayTreeBottomUp<T> buildFromSorted(Iterator<? extends T> items) {
+        ArrayList<T> list = new ArrayList<>();
+        while (items.hasNext())
+            list.add(items.next());
+        return buildFromSorted((T[]) list.toArray(new Comparable[list.size()]));
+    }
+
     /**
      * insert a value into splay tree
      * @param x val
@@ -353,6 +382,28 @@ public class SplayTreeBottomUp<T extends Comparable<? super T>> {
             return node;
     }
 
+    /**
+     * build a balanced subtree from items[lo, hi), the middle value is the root
+     * @param items values
+     * @param lo first index
+     * @param hi last index + 1
+     * @param parent parent of the subtree root
+     * @return root of the subtree, null if it is empty
+     */
+    private BinaryNode<T> build(T[] items, int lo, int hi, BinaryNode<T> parent) {
+        if (lo == hi)
+            return null;
+
+        int mid = (lo + hi) >>> 1;
+        if (mid > 0 && items[mid - 1].compareTo(items[mid]) >= 0)
+            throw new IllegalArgumentException("items are not strictly increasing at index " + mid);
+
+        BinaryNode<T> node = new BinaryNode<>(items[mid], parent);
+        node.left = build(items, lo, mid, node);
+        node.right = build(items, mid + 1, hi, node);
+        return node;
+    }
+
     /**
      * public method, print the tree level by level
      */
@@ -448,5 +499,9 @@ public class SplayTreeBottomUp<T extends Comparable<? super T>> {
         bottomUp.insert(20);
         bottomUp.printLevels();
 
+        SplayTreeBottomUp<Integer> built = SplayTreeBottomUp.buildFromSorted(new Integer[]{1, 2, 3, 4, 5, 6, 7});
+        built.printLevels();
+        built.remove(4);
+        built.printLevels();
     }
 }
@@ -1,5 +1,7 @@
 package chap4;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -18,6 +20,33 @@ public class SplayTreeTopDown<T extends Comparable<? super T>> {
         root = null;
     }
 
+    /**
+     * build a perfectly balanced tree from sorted values in O(n), inserting them one by one
+     * would build a path instead
+     * @param items values, strictly increasing
+     * @param <T> generic type
+     * @return splay tree
+     */
+    public static <T extends Comparable<? super T>> SplayTreeTopDown<T> buildFromSorted(T[] items) {
+        SplayTreeTopDown<T> tree = new SplayTreeTopDown<>();
+        tree.root = tree.build(items, 0, items.length);
+        return tree;
+    }
+
+    /**
+     * build a perfectly balanced tree from sorted values in O(n), the values are copied to an array first
+     * @param items values, strictly increasing
+     * @param <T> generic type
+     * @return splay tree
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T extends Comparable<? super T>> SplayTreeTopDown<T> buildFromSorted(Iterator<? extends T> items) {
+        ArrayList<T> list = new ArrayList<>();
+        while (items.hasNext())
+            list.add(items.next());
+        return buildFromSorted((T[]) list.toArray(new Comparable[list.size()]));
+    }
+
     /**
      * insert a value into splay tree
      * @param x val
@@ -230,6 +259,24 @@ public class SplayTreeTopDown<T extends Comparable<? super T>> {
 
     }
 
+    /**
+     * build a balanced subtree from items[lo, hi), the middle value is the root
+     * @param items values
+     * @param lo first index
+     * @param hi last index + 1
+     * @return root of the subtree, null if it is empty
+     */
+    private BinaryNode<T> build(T[] items, int lo, int hi) {
+        if (lo == hi)
+            return null;
+
+        int mid = (lo + hi) >>> 1;
+        if (mid > 0 && items[mid - 1].compareTo(items[mid]) >= 0)
+            throw new IllegalArgumentException("items are not strictly increasing at index " + mid);
+
+        return new BinaryNode<>(items[mid], build(items, lo, mid), build(items, mid + 1, hi));
+    }
+
     /**
      * public method, print a tree level by level
      */
@@ -304,5 +351,8 @@ public class SplayTreeTopDown<T extends Comparable<? super T>> {
         splayTreeTopDown.printLevels();
         splayTreeTopDown.insert(34);
         splayTreeTopDown.printLevels();
+
+        SplayTreeTopDown<Integer> built = SplayTreeTopDown.buildFromSorted(new Integer[]{1, 2, 3, 4, 5, 6, 7});
+        built.printLevels();
     }
 }